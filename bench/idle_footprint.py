@@ -0,0 +1,52 @@
+#!/usr/bin/env python3
+"""Reports thread count and RSS of an idle stdio server after the Discord gateway connected.
+
+Run it on two builds (e.g. before and after an executor change) to compare their footprint.
+
+Usage:
+    DISCORD_TOKEN=... DISCORD_GUILD_ID=... python3 bench/idle_footprint.py --jar target/discord-mcp-0.0.1.jar
+"""
+import argparse
+import json
+import subprocess
+import time
+
+
+def proc_status(pid):
+    values = {}
+    with open(f"/proc/{pid}/status") as status:
+        for line in status:
+            key, _, value = line.partition(":")
+            values[key] = value.strip()
+    return values
+
+
+def request(proc, message):
+    proc.stdin.write(json.dumps(message) + "\n")
+    proc.stdin.flush()
+    if "id" not in message:
+        return None
+    while True:
+        response = json.loads(proc.stdout.readline())
+        if response.get("id") == message["id"]:
+            return response
+
+
+if __name__ == "__main__":
+    parser = argparse.ArgumentParser()
+    parser.add_argument("--jar", required=True)
+    parser.add_argument("--settle", type=int, default=30, help="seconds to stay idle before sampling")
+    args = parser.parse_args()
+
+    proc = subprocess.Popen(["java", "-jar", args.jar], stdin=subprocess.PIPE, stdout=subprocess.PIPE, text=True, bufsize=1)
+    request(proc, {"jsonrpc": "2.0", "id": 1, "method": "initialize",
+                   "params": {"protocolVersion": "2024-11-05", "capabilities": {},
+                              "clientInfo": {"name": "idle-footprint", "version": "1"}}})
+    request(proc, {"jsonrpc": "2.0", "method": "notifications/initialized"})
+    # list_channels forces the gateway connection
+    request(proc, {"jsonrpc": "2.0", "id": 2, "method": "tools/call",
+                   "params": {"name": "list_channels", "arguments": {}}})
+    time.sleep(args.settle)
+    status = proc_status(proc.pid)
+    print(f"threads={status['Threads']} rss={status['VmRSS']}")
+    proc.kill()
@@ -0,0 +1,64 @@
+#!/usr/bin/env python3
+"""Measures startup-to-first-tool-response for the stdio server variants.
+
+Each variant is spawned fresh and timed from process start until the response to a `tools/call`
+of `get_metrics` (no Discord connection needed) arrives. Variants whose binary/archive is missing are skipped.
+
+Usage:
+    mvn clean package -DskipTests                  # plain JVM
+    java -Djarmode=tools -jar target/discord-mcp-0.0.1.jar extract --destination target/application
+    java -XX:ArchiveClassesAtExit=target/application/app.jsa -Dspring.context.exit=onRefresh \
+         -jar target/application/app.jar < /dev/null  # AppCDS archive
+    mvn -Pnative native:compile                    # GraalVM native image (target/discord-mcp)
+    python3 bench/startup_bench.py --runs 10
+"""
+import argparse
+import json
+import os
+import statistics
+import subprocess
+import time
+
+VARIANTS = {
+    "jvm": (["java", "-jar", "target/discord-mcp-0.0.1.jar"], "target/discord-mcp-0.0.1.jar"),
+    "jvm-appcds": (["java", "-XX:SharedArchiveFile=target/application/app.jsa", "-jar", "target/application/app.jar"],
+                   "target/application/app.jsa"),
+    "native": (["target/discord-mcp"], "target/discord-mcp"),
+}
+
+MESSAGES = [
+    {"jsonrpc": "2.0", "id": 1, "method": "initialize",
+     "params": {"protocolVersion": "2024-11-05", "capabilities": {},
+                "clientInfo": {"name": "startup-bench", "version": "1"}}},
+    {"jsonrpc": "2.0", "method": "notifications/initialized"},
+    {"jsonrpc": "2.0", "id": 2, "method": "tools/call", "params": {"name": "get_metrics", "arguments": {}}},
+]
+
+
+def first_tool_response_ms(command):
+    started = time.perf_counter()
+    proc = subprocess.Popen(command, stdin=subprocess.PIPE, stdout=subprocess.PIPE, text=True, bufsize=1,
+                            env={**os.environ, "DISCORD_TOKEN": os.environ.get("DISCORD_TOKEN", "bench")})
+    try:
+        for message in MESSAGES:
+            proc.stdin.write(json.dumps(message) + "\n")
+            proc.stdin.flush()
+            if "id" not in message:
+                continue
+            while json.loads(proc.stdout.readline()).get("id") != message["id"]:
+                pass
+        return (time.perf_counter() - started) * 1000
+    finally:
+        proc.kill()
+
+
+if __name__ == "__main__":
+    parser = argparse.ArgumentParser()
+    parser.add_argument("--runs", type=int, default=5)
+    args = parser.parse_args()
+    for name, (command, artifact) in VARIANTS.items():
+        if not os.path.exists(artifact):
+            print(f"{name}: skipped ({artifact} not found)")
+            continue
+        samples = [first_tool_response_ms(command) for _ in range(args.runs)]
+        print(f"{name}: median={statistics.median(samples):.0f}ms min={min(samples):.0f}ms max={max(samples):.0f}ms")
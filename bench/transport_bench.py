@@ -0,0 +1,172 @@
+#!/usr/bin/env python3
+"""Compares N stdio server processes with one HTTP/SSE server serving N sessions.
+
+Measures total resident memory (Linux /proc) and the latency of a `tools/call` round trip
+for `get_metrics`, which does not touch Discord, so no bot token is needed.
+
+Usage:
+    mvn clean package -DskipTests -Phttp
+    python3 bench/transport_bench.py --jar target/discord-mcp-0.0.1.jar --sessions 50
+"""
+import argparse
+import http.client
+import json
+import os
+import queue
+import statistics
+import subprocess
+import threading
+import time
+import urllib.parse
+
+INIT = {"jsonrpc": "2.0", "id": 1, "method": "initialize",
+        "params": {"protocolVersion": "2024-11-05", "capabilities": {},
+                   "clientInfo": {"name": "transport-bench", "version": "1"}}}
+INITIALIZED = {"jsonrpc": "2.0", "method": "notifications/initialized"}
+
+
+def tool_call(request_id):
+    return {"jsonrpc": "2.0", "id": request_id, "method": "tools/call",
+            "params": {"name": "get_metrics", "arguments": {}}}
+
+
+def rss_kb(pid):
+    with open(f"/proc/{pid}/status") as status:
+        for line in status:
+            if line.startswith("VmRSS:"):
+                return int(line.split()[1])
+    return 0
+
+
+def percentile(values, pct):
+    ordered = sorted(values)
+    return ordered[min(len(ordered) - 1, int(len(ordered) * pct / 100))]
+
+
+def report(name, latencies_ms, total_rss_kb, startup_s):
+    print(f"{name}: sessions={len(latencies_ms)} startup={startup_s:.1f}s rss={total_rss_kb / 1024:.0f}MB "
+          f"p50={statistics.median(latencies_ms):.1f}ms p99={percentile(latencies_ms, 99):.1f}ms")
+
+
+class StdioSession:
+    def __init__(self, jar):
+        self.proc = subprocess.Popen(["java", "-jar", jar], stdin=subprocess.PIPE, stdout=subprocess.PIPE,
+                                     text=True, bufsize=1, env={**os.environ, "DISCORD_TOKEN": "bench"})
+
+    def request(self, message):
+        self.proc.stdin.write(json.dumps(message) + "\n")
+        self.proc.stdin.flush()
+        if "id" not in message:
+            return None
+        while True:
+            response = json.loads(self.proc.stdout.readline())
+            if response.get("id") == message["id"]:
+                return response
+
+    def close(self):
+        self.proc.kill()
+
+
+def bench_stdio(jar, sessions, calls):
+    started = time.time()
+    clients = [StdioSession(jar) for _ in range(sessions)]
+    for client in clients:
+        client.request(INIT)
+        client.request(INITIALIZED)
+    startup = time.time() - started
+    latencies = []
+    for i in range(calls):
+        for client in clients:
+            begin = time.perf_counter()
+            client.request(tool_call(100 + i))
+            latencies.append((time.perf_counter() - begin) * 1000)
+    total_rss = sum(rss_kb(client.proc.pid) for client in clients)
+    for client in clients:
+        client.close()
+    report("stdio", latencies, total_rss, startup)
+
+
+class SseSession:
+    def __init__(self, host, port):
+        self.host, self.port = host, port
+        self.responses = queue.Queue()
+        self.endpoint = queue.Queue()
+        self.stream = http.client.HTTPConnection(host, port)
+        self.stream.request("GET", "/sse", headers={"Accept": "text/event-stream"})
+        self.reader = threading.Thread(target=self._read, daemon=True)
+        self.reader.start()
+        self.path = self.endpoint.get(timeout=30)
+        self.post = http.client.HTTPConnection(host, port)
+
+    def _read(self):
+        response = self.stream.getresponse()
+        event = None
+        for raw in response:
+            line = raw.decode().rstrip("\n")
+            if line.startswith("event:"):
+                event = line[6:].strip()
+            elif line.startswith("data:"):
+                data = line[5:].strip()
+                if event == "endpoint":
+                    self.endpoint.put(data)
+                else:
+                    self.responses.put(json.loads(data))
+
+    def request(self, message):
+        self.post.request("POST", self.path, body=json.dumps(message), headers={"Content-Type": "application/json"})
+        self.post.getresponse().read()
+        if "id" not in message:
+            return None
+        while True:
+            response = self.responses.get(timeout=30)
+            if response.get("id") == message["id"]:
+                return response
+
+
+def bench_http(jar, sessions, calls, port):
+    started = time.time()
+    server = subprocess.Popen(["java", "-Dspring.profiles.active=http", f"-DMCP_HTTP_PORT={port}", "-jar", jar],
+                              stdout=subprocess.DEVNULL, stderr=subprocess.DEVNULL,
+                              env={**os.environ, "DISCORD_TOKEN": "bench"})
+    while True:
+        try:
+            probe = http.client.HTTPConnection("localhost", port, timeout=1)
+            probe.connect()
+            probe.close()
+            break
+        except OSError:
+            time.sleep(0.1)
+    clients = [SseSession("localhost", port) for _ in range(sessions)]
+    for client in clients:
+        client.request(INIT)
+        client.request(INITIALIZED)
+    startup = time.time() - started
+    latencies = []
+    lock = threading.Lock()
+
+    def run(client):
+        for i in range(calls):
+            begin = time.perf_counter()
+            client.request(tool_call(100 + i))
+            with lock:
+                latencies.append((time.perf_counter() - begin) * 1000)
+
+    workers = [threading.Thread(target=run, args=(client,)) for client in clients]
+    for worker in workers:
+        worker.start()
+    for worker in workers:
+        worker.join()
+    total_rss = rss_kb(server.pid)
+    server.kill()
+    report("http", latencies, total_rss, startup)
+
+
+if __name__ == "__main__":
+    parser = argparse.ArgumentParser()
+    parser.add_argument("--jar", required=True)
+    parser.add_argument("--sessions", type=int, default=50)
+    parser.add_argument("--calls", type=int, default=20)
+    parser.add_argument("--port", type=int, default=18085)
+    args = parser.parse_args()
+    bench_stdio(args.jar, args.sessions, args.calls)
+    bench_http(args.jar, args.sessions, args.calls, args.port)
@@ -0,0 +1,433 @@
+package dev.saseq.configs;
+
+import jakarta.annotation.PreDestroy;
+import net.dv8tion.jda.api.entities.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed on-disk cache for attachment files. Files are stored once under their SHA-256
+ * ({@code objects/ab/abcdef...}) and a compact index maps attachment IDs and CDN URLs (without the expiring query
+ * string) to hashes, so re-reads and reposts of the same file are served from disk. Objects are evicted least
+ * recently used once the total size exceeds the configured limit.
+ * <p>
+ * Index changes are appended to the index file as they happen and the file is compacted at startup and on
+ * shutdown, since stdio servers are usually killed rather than shut down. At startup the objects on disk are
+ * counted by scanning the objects directory, so objects whose index entries were lost still count towards the
+ * size limit and get evicted.
+ */
+@Component
+public class AttachmentCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentCache.class);
+    private static final long TRANSFER_CHUNK = 1 << 20;
+    private static final String INDEX_FILE = "index";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<String, String> index = new HashMap<>();
+    private final LinkedHashMap<String, Long> objects = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> pins = new HashMap<>();
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    /**
+     * Bytes served from disk instead of the CDN.
+     */
+    private final LongAdder bytesSaved = new LongAdder();
+    /**
+     * Bytes downloaded again under a new attachment whose content was already stored, so only disk space was saved.
+     */
+    private final LongAdder dedupedBytes = new LongAdder();
+    private long totalBytes;
+    private BufferedWriter journal;
+
+    public AttachmentCache(@Value("${discord.mcp.attachments.cache-directory:./cache/attachments}") String directory,
+                           @Value("${discord.mcp.attachments.cache-max-mb:2048}") long maxMb) {
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        this.maxBytes = maxMb * 1024 * 1024;
+        load();
+    }
+
+    /**
+     * @return Whether an attachment of this size fits into the cache at all.
+     */
+    public boolean accepts(long size) {
+        return size <= maxBytes;
+    }
+
+    /**
+     * Copies an attachment to a target path, from the cache or downloading it into the cache first. Concurrent
+     * requests for the same attachment share one download. The object is pinned while it is copied, so a concurrent
+     * eviction cannot delete it underneath the copy. A copy rather than a link keeps edits of the target from
+     * corrupting the cache; on Linux the JDK performs it in the kernel without passing the data through the heap.
+     *
+     * @param attachment The attachment.
+     * @param limit      Largest number of bytes to download.
+     * @param target     The file to write.
+     */
+    public void copyTo(Message.Attachment attachment, long limit, Path target) throws IOException {
+        String hash = acquire(attachment, limit);
+        try {
+            Files.copy(objectPath(hash), target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            release(hash);
+        }
+    }
+
+    /**
+     * @return The hash of the cached object of the attachment, pinned until {@link #release(String)}.
+     */
+    private String acquire(Message.Attachment attachment, long limit) throws IOException {
+        String idKey = "id:" + attachment.getId();
+        String urlKey = "url:" + stripQuery(attachment.getUrl());
+        while (true) {
+            String cached = lookup(idKey, urlKey);
+            if (cached != null) {
+                hits.increment();
+                bytesSaved.add(attachment.getSize());
+                return cached;
+            }
+            CompletableFuture<Void> flight = new CompletableFuture<>();
+            CompletableFuture<Void> existing = inFlight.putIfAbsent(idKey, flight);
+            if (existing != null) {
+                // Another request is downloading it: wait, then take it from the cache like a hit
+                CallDeadline.await(existing);
+                continue;
+            }
+            misses.increment();
+            try {
+                String hash = fetch(attachment, limit, idKey, urlKey);
+                flight.complete(null);
+                return hash;
+            } catch (IOException | RuntimeException e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(idKey);
+            }
+        }
+    }
+
+    private synchronized void release(String hash) {
+        pins.computeIfPresent(hash, (key, count) -> count == 1 ? null : count - 1);
+        // Eviction skips pinned objects, so the cache may have grown past the limit meanwhile
+        evict();
+    }
+
+    /**
+     * Streams an input into a file through a {@link FileChannel}, keeping only the channel's transfer buffer on the heap.
+     *
+     * @return The number of bytes written.
+     * @throws IOException If the stream fails or grows past {@code limit} bytes.
+     */
+    public static long transfer(InputStream in, Path file, long limit) throws IOException {
+        try (ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel sink = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = sink.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                position += transferred;
+                if (position > limit) {
+                    throw new IOException("download exceeds the limit of " + limit + " bytes");
+                }
+            }
+            return position;
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    public long getDedupedBytes() {
+        return dedupedBytes.sum();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return objects.size();
+    }
+
+    public double getHitRate() {
+        long total = hits.sum() + misses.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+
+    @PreDestroy
+    public synchronized void saveIndex() {
+        closeJournal();
+        writeIndex();
+    }
+
+    /**
+     * Rewrites the index file with the current entries only.
+     */
+    private void writeIndex() {
+        Path file = directory.resolve(INDEX_FILE);
+        Path partial = directory.resolve(INDEX_FILE + ".part");
+        try {
+            Files.createDirectories(directory);
+            try (BufferedWriter writer = Files.newBufferedWriter(partial)) {
+                for (Map.Entry<String, String> entry : index.entrySet()) {
+                    writer.write(entry.getKey());
+                    writer.write('\t');
+                    writer.write(entry.getValue());
+                    writer.newLine();
+                }
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not save attachment cache index: {}", e.getMessage());
+        }
+    }
+
+    private String fetch(Message.Attachment attachment, long limit, String idKey, String urlKey) throws IOException {
+        Files.createDirectories(directory);
+        Path partial = Files.createTempFile(directory, "download-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (InputStream in = new DigestInputStream(CallDeadline.awaitOrCancel(attachment.getProxy().download()), digest)) {
+                size = transfer(in, partial, limit);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path object = objectPath(hash);
+            Files.createDirectories(object.getParent());
+            synchronized (this) {
+                if (objects.containsKey(hash)) {
+                    // Same content reposted under another attachment: keep the existing object
+                    dedupedBytes.add(size);
+                } else {
+                    try {
+                        Files.move(partial, object, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (FileAlreadyExistsException e) {
+                        log.debug("Object {} already on disk", hash);
+                    }
+                    objects.put(hash, size);
+                    totalBytes += size;
+                }
+                putIndex(idKey, hash);
+                putIndex(urlKey, hash);
+                flushJournal();
+                // Touch the object so it becomes the most recently used one, and pin it before evicting
+                objects.get(hash);
+                pins.merge(hash, 1, Integer::sum);
+                evict();
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    /**
+     * @return The hash of the cached object of any of the keys, pinned, or null.
+     */
+    private synchronized String lookup(String... keys) {
+        for (String key : keys) {
+            String hash = index.get(key);
+            if (hash != null && objects.get(hash) != null) {
+                Path object = objectPath(hash);
+                if (Files.exists(object)) {
+                    for (String other : keys) {
+                        putIndex(other, hash);
+                    }
+                    flushJournal();
+                    pins.merge(hash, 1, Integer::sum);
+                    return hash;
+                }
+                removeObject(hash);
+            }
+        }
+        return null;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = objects.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            String hash = entry.getKey();
+            if (pins.containsKey(hash)) {
+                continue;
+            }
+            eldest.remove();
+            totalBytes -= entry.getValue();
+            index.values().removeIf(hash::equals);
+            try {
+                Files.deleteIfExists(objectPath(hash));
+            } catch (IOException e) {
+                log.debug("Could not delete evicted object {}: {}", hash, e.getMessage());
+            }
+        }
+    }
+
+    private void removeObject(String hash) {
+        Long size = objects.remove(hash);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        index.values().removeIf(hash::equals);
+    }
+
+    private void load() {
+        try {
+            scanObjects();
+        } catch (IOException e) {
+            log.warn("Could not scan attachment cache objects: {}", e.getMessage());
+        }
+        Path file = directory.resolve(INDEX_FILE);
+        if (Files.exists(file)) {
+            try {
+                // Later lines of the journal override earlier ones
+                for (String line : Files.readAllLines(file)) {
+                    int separator = line.indexOf('\t');
+                    if (separator <= 0) {
+                        continue;
+                    }
+                    String hash = line.substring(separator + 1);
+                    if (objects.containsKey(hash)) {
+                        index.put(line.substring(0, separator), hash);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Could not load attachment cache index: {}", e.getMessage());
+            }
+        }
+        evict();
+        if (Files.exists(file)) {
+            // Compacts the journal of the previous run
+            writeIndex();
+        }
+    }
+
+    /**
+     * Registers every object on disk, least recently modified first so eviction keeps the newest, and removes
+     * downloads left unfinished by a previous run.
+     */
+    private void scanObjects() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> partials = Files.list(directory)) {
+            for (Path partial : partials.filter(path -> path.getFileName().toString().startsWith("download-")).toList()) {
+                Files.deleteIfExists(partial);
+            }
+        }
+        Path root = directory.resolve("objects");
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root, 2)) {
+            files = walk.filter(Files::isRegularFile).toList();
+        }
+        Map<Path, FileTime> modified = new HashMap<>();
+        for (Path object : files) {
+            modified.put(object, Files.getLastModifiedTime(object));
+        }
+        files.stream().sorted(Comparator.comparing(modified::get)).forEach(object -> {
+            long size = object.toFile().length();
+            objects.put(object.getFileName().toString(), size);
+            totalBytes += size;
+        });
+    }
+
+    private void putIndex(String key, String hash) {
+        if (hash.equals(index.put(key, hash))) {
+            return;
+        }
+        try {
+            if (journal == null) {
+                Files.createDirectories(directory);
+                journal = Files.newBufferedWriter(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            journal.write(key);
+            journal.write('\t');
+            journal.write(hash);
+            journal.newLine();
+        } catch (IOException e) {
+            log.warn("Could not append to attachment cache index: {}", e.getMessage());
+            closeJournal();
+        }
+    }
+
+    private void flushJournal() {
+        if (journal != null) {
+            try {
+                journal.flush();
+            } catch (IOException e) {
+                log.warn("Could not append to attachment cache index: {}", e.getMessage());
+                closeJournal();
+            }
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.debug("Could not close attachment cache index: {}", e.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    private Path objectPath(String hash) {
+        return directory.resolve("objects").resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static String stripQuery(String url) {
+        int query = url.indexOf('?');
+        return query < 0 ? url : url.substring(0, query);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
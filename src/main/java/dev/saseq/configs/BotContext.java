@@ -0,0 +1,46 @@
+package dev.saseq.configs;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the bot profile selected for the tool invocation running on the current thread.
+ * {@link LazyJDAProvider#getJDA()} resolves the JDA instance of this profile.
+ */
+public final class BotContext {
+
+    public static final String DEFAULT_BOT = "default";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private BotContext() {
+    }
+
+    /**
+     * @return The bot profile of the current invocation, or {@link #DEFAULT_BOT} if none was selected.
+     */
+    public static String current() {
+        String bot = CURRENT.get();
+        return bot == null ? DEFAULT_BOT : bot;
+    }
+
+    /**
+     * Runs the task with the given bot profile selected and restores the previous selection afterwards.
+     *
+     * @param bot  The bot profile, or null/empty for the default bot.
+     * @param task The task to run.
+     * @return The task result.
+     */
+    public static <T> T callAs(String bot, Supplier<T> task) {
+        String previous = CURRENT.get();
+        CURRENT.set(bot == null || bot.isEmpty() ? null : bot);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
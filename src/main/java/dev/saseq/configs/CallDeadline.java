@@ -0,0 +1,206 @@
+package dev.saseq.configs;
+
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.api.utils.concurrent.Task;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Holds the deadline of the tool invocation running on the current thread, set by {@link DiscordToolCallback}.
+ * Tools execute their REST actions through {@link #complete(RestAction)}, which hands the deadline to JDA, so
+ * requests still queued behind a rate limit are dropped by the requester instead of being sent late, and stops
+ * waiting once the deadline has passed.
+ */
+public final class CallDeadline {
+
+    /**
+     * No deadline.
+     */
+    public static final long NONE = 0;
+
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Long> REQUEST_DEADLINE = new ThreadLocal<>();
+
+    private CallDeadline() {
+    }
+
+    /**
+     * @return The deadline of the current invocation as epoch milliseconds, or {@link #NONE}.
+     */
+    public static long current() {
+        Long deadline = CURRENT.get();
+        return deadline == null ? NONE : deadline;
+    }
+
+    /**
+     * @return The milliseconds left until the deadline of the current invocation, or {@link Long#MAX_VALUE} if it has none.
+     */
+    public static long remainingMillis() {
+        long deadline = current();
+        return deadline == NONE ? Long.MAX_VALUE : deadline - System.currentTimeMillis();
+    }
+
+    /**
+     * Runs the task with the given deadline and restores the previous deadline afterwards. A nested invocation
+     * never extends the deadline of the invocation it runs in.
+     *
+     * @param deadline The deadline as epoch milliseconds, or {@link #NONE}.
+     * @param task     The task to run.
+     * @return The task result.
+     */
+    public static <T> T callWithin(long deadline, Supplier<T> task) {
+        Long previous = CURRENT.get();
+        long effective = previous == null || deadline != NONE && deadline < previous ? deadline : previous;
+        CURRENT.set(effective == NONE ? null : effective);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Blocking {@link RestAction#complete()} bounded by the deadline of the current invocation.
+     *
+     * @throws DeadlineExceededException If the deadline passed before the response arrived. The request is
+     *                                   cancelled if it has not been sent yet.
+     */
+    public static <T> T complete(RestAction<T> action) {
+        return complete(action, current());
+    }
+
+    /**
+     * Blocking {@link RestAction#complete()} bounded by the given deadline, for worker threads of an invocation.
+     *
+     * @param deadline The deadline as epoch milliseconds, or {@link #NONE}.
+     */
+    public static <T> T complete(RestAction<T> action, long deadline) {
+        if (deadline == NONE) {
+            return RestRequestEvent.timed(action).complete();
+        }
+        checkNotExpired(deadline);
+        return await(attach(RestRequestEvent.timed(action), deadline).submit(), deadline, true);
+    }
+
+    /**
+     * Applies a deadline to an action that is submitted asynchronously, e.g. from a completion callback.
+     *
+     * @param deadline The deadline as epoch milliseconds, or {@link #NONE}.
+     */
+    public static <T> RestAction<T> bound(RestAction<T> action, long deadline) {
+        return deadline == NONE ? action : attach(action, deadline);
+    }
+
+    /**
+     * @return The deadline of the request about to be sent on this JDA requester thread, or {@link #NONE}.
+     */
+    static long takeRequestDeadline() {
+        Long deadline = REQUEST_DEADLINE.get();
+        REQUEST_DEADLINE.remove();
+        return deadline == null ? NONE : deadline;
+    }
+
+    /**
+     * Hands the deadline to JDA, and to the HTTP interceptors through a check that JDA runs on its requester thread
+     * right before it sends the request.
+     */
+    private static <T> RestAction<T> attach(RestAction<T> action, long deadline) {
+        return action.deadline(deadline).addCheck(() -> {
+            REQUEST_DEADLINE.set(deadline);
+            return true;
+        });
+    }
+
+    /**
+     * Blocking {@link Task#get()} bounded by the deadline of the current invocation.
+     *
+     * @throws DeadlineExceededException If the deadline passed before the task completed. The task is cancelled.
+     */
+    public static <T> T get(Task<T> task) {
+        long deadline = current();
+        if (deadline == NONE) {
+            return task.get();
+        }
+        checkNotExpired(deadline);
+        task.setTimeout(Duration.ofMillis(Math.max(1, deadline - System.currentTimeMillis())));
+        try {
+            return task.get();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                task.cancel();
+                throw new DeadlineExceededException(deadline);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for a future shared with other invocations, bounded by the deadline of the current invocation.
+     * The future itself is left running for the other waiters.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        long deadline = current();
+        if (deadline == NONE) {
+            return future.join();
+        }
+        return await(future, deadline, false);
+    }
+
+    /**
+     * Waits for a future owned by the current invocation, bounded by its deadline. The future is cancelled if the
+     * deadline passes or the wait is interrupted.
+     */
+    public static <T> T awaitOrCancel(CompletableFuture<T> future) {
+        long deadline = current();
+        if (deadline == NONE) {
+            return future.join();
+        }
+        return await(future, deadline, true);
+    }
+
+    private static <T> T await(CompletableFuture<T> future, long deadline, boolean cancel) {
+        try {
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (cancel) {
+                future.cancel(false);
+            }
+            throw new DeadlineExceededException(deadline);
+        } catch (InterruptedException e) {
+            if (cancel) {
+                future.cancel(false);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Discord", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                // JDA dropped the request because its deadline passed while it was queued
+                throw new DeadlineExceededException(deadline);
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    private static void checkNotExpired(long deadline) {
+        if (System.currentTimeMillis() >= deadline) {
+            throw new DeadlineExceededException(deadline);
+        }
+    }
+}
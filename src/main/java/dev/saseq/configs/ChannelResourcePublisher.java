@@ -0,0 +1,207 @@
+package dev.saseq.configs;
+
+import dev.saseq.services.ResultWriter;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.server.McpSyncServer;
+import io.modelcontextprotocol.spec.McpSchema;
+import jakarta.annotation.PreDestroy;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.message.GenericMessageEvent;
+import net.dv8tion.jda.api.events.message.MessageBulkDeleteEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exposes the message history of text channels, threads and forum posts as MCP resources through one resource
+ * template ({@code discord://channels/{id}}) and pushes {@code notifications/resources/updated} when gateway events
+ * change them. A single template keeps the resource list constant, so connecting to large guilds sends no
+ * {@code list_changed} notifications. The MCP SDK lists a resource whose URI contains a variable under
+ * {@code resources/templates/list} and routes reads of every URI matching it to its handler.
+ * <p>
+ * Only resources a client has read are tracked for updates: the SDK does not handle {@code resources/subscribe},
+ * so reading a resource is what makes a client interested in its changes. Nor can a notification be addressed to
+ * one session, so updates go to every connected session, including, over HTTP, clients that never read the
+ * resource. Update notifications are debounced: every tracked resource changed within the debounce window is
+ * notified once when the window closes. Resources are read through the default bot.
+ * <p>
+ * Opt-in with {@code discord.mcp.resources.enabled=true}, since the message events need the
+ * {@link GatewayIntent#GUILD_MESSAGES} intent.
+ */
+@Component
+@ConditionalOnProperty(name = "discord.mcp.resources.enabled", havingValue = "true")
+@RequiresIntents(GatewayIntent.GUILD_MESSAGES)
+public class ChannelResourcePublisher extends ListenerAdapter {
+
+    public static final String INDEX_URI = "discord://channels";
+    public static final String CHANNEL_URI_TEMPLATE = INDEX_URI + "/{id}";
+    private static final String CHANNEL_URI_PREFIX = INDEX_URI + "/";
+    private static final String MIME_TYPE = "text/markdown";
+    private static final Logger log = LoggerFactory.getLogger(ChannelResourcePublisher.class);
+
+    private final LazyJDAProvider jdaProvider;
+    private final RequestCoalescer requestCoalescer;
+    private final ObjectProvider<McpSyncServer> mcpServer;
+    private final int messageLimit;
+    private final long debounceMs;
+    private final Map<String, String> trackedUris = new ConcurrentHashMap<>();
+    private final Set<String> changedUris = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService notifier = Executors.newSingleThreadScheduledExecutor(SharedJdaExecutors.daemonThreads("MCP-Resource-Notifier"));
+
+    public ChannelResourcePublisher(LazyJDAProvider jdaProvider,
+                                    RequestCoalescer requestCoalescer,
+                                    ObjectProvider<McpSyncServer> mcpServer,
+                                    @Value("${discord.mcp.resources.message-limit:50}") int messageLimit,
+                                    @Value("${discord.mcp.resources.notify-debounce-ms:500}") long debounceMs) {
+        this.jdaProvider = jdaProvider;
+        this.requestCoalescer = requestCoalescer;
+        this.mcpServer = mcpServer;
+        this.messageLimit = messageLimit;
+        this.debounceMs = debounceMs;
+    }
+
+    /**
+     * @return The index resource and the channel resource template.
+     */
+    public List<McpServerFeatures.SyncResourceSpecification> resources() {
+        return List.of(indexResource(), channelResource());
+    }
+
+    /**
+     * @return The index resource listing the channel resources; reading it connects the default bot.
+     */
+    public McpServerFeatures.SyncResourceSpecification indexResource() {
+        McpSchema.Resource resource = new McpSchema.Resource(INDEX_URI, "Discord channels",
+                "Channel and thread message resources of all guilds the bot is in", MIME_TYPE, null);
+        return new McpServerFeatures.SyncResourceSpecification(resource, (exchange, request) -> {
+            List<Guild> guilds = jdaProvider.getJDA().getGuilds();
+            ResultWriter index = ResultWriter.forEntries(guilds.stream()
+                    .mapToInt(guild -> guild.getChannels().size() + guild.getThreadChannels().size() + 1)
+                    .sum());
+            for (Guild guild : guilds) {
+                index.append("**").append(guild.getName()).append("**\n");
+                guild.getChannels().stream()
+                        .filter(GuildMessageChannel.class::isInstance)
+                        .forEach(channel -> index.append("- ").append(channel.getName()).append(": ").append(uriOf(channel)).append('\n'));
+                guild.getThreadChannels()
+                        .forEach(thread -> index.append("- ").append(thread.getName()).append(": ").append(uriOf(thread)).append('\n'));
+            }
+            return new McpSchema.ReadResourceResult(List.of(new McpSchema.TextResourceContents(INDEX_URI, MIME_TYPE, index.toString())));
+        });
+    }
+
+    /**
+     * @return The template resource of the latest messages of a channel, thread or forum post; the SDK hands it
+     * reads of the concrete {@code discord://channels/<id>} URIs.
+     */
+    public McpServerFeatures.SyncResourceSpecification channelResource() {
+        McpSchema.Resource resource = new McpSchema.Resource(CHANNEL_URI_TEMPLATE, "Discord channel messages",
+                "Latest " + messageLimit + " messages of a text channel, thread or forum post", MIME_TYPE, null);
+        return new McpServerFeatures.SyncResourceSpecification(resource, (exchange, request) -> read(request.uri()));
+    }
+
+    @Override
+    public void onChannelDelete(ChannelDeleteEvent event) {
+        untrack(event.getChannel().getId());
+    }
+
+    @Override
+    public void onGuildLeave(GuildLeaveEvent event) {
+        event.getGuild().getChannels().forEach(channel -> untrack(channel.getId()));
+        event.getGuild().getThreadChannels().forEach(thread -> untrack(thread.getId()));
+    }
+
+    @Override
+    public void onGenericMessage(GenericMessageEvent event) {
+        // Received, updated, deleted messages and reactions all change the rendered history
+        changed(event.getChannel().getId());
+    }
+
+    @Override
+    public void onMessageBulkDelete(MessageBulkDeleteEvent event) {
+        changed(event.getChannel().getId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        notifier.shutdownNow();
+    }
+
+    private void untrack(String channelId) {
+        String uri = trackedUris.remove(channelId);
+        if (uri != null) {
+            changedUris.remove(uri);
+        }
+    }
+
+    private McpSchema.ReadResourceResult read(String uri) {
+        String channelId = uri.startsWith(CHANNEL_URI_PREFIX) ? uri.substring(CHANNEL_URI_PREFIX.length()) : "";
+        if (!channelId.matches("\\d{17,20}")) {
+            throw new IllegalArgumentException("Resource URI must be " + CHANNEL_URI_TEMPLATE + " with a channel ID");
+        }
+        GuildMessageChannel channel = jdaProvider.getJDA().getChannelById(GuildMessageChannel.class, channelId);
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel not found by channelId");
+        }
+        trackedUris.put(channelId, uri);
+        // Shares the read_messages flight, so a burst of re-reads after one notification costs a single request
+        List<Message> messages = requestCoalescer.complete("messages:" + channelId + ":" + messageLimit,
+                () -> channel.getHistory().retrievePast(messageLimit));
+        // Rendered like read_messages, so the content is escaped inside its code block
+        ResultWriter text = ResultWriter.forMessages(messages)
+                .append("**").append(messages.size()).append(" latest messages:**\n")
+                .messages(messages);
+        return new McpSchema.ReadResourceResult(List.of(new McpSchema.TextResourceContents(uri, MIME_TYPE, text.toString())));
+    }
+
+    private void changed(String channelId) {
+        String uri = trackedUris.get(channelId);
+        if (uri == null) {
+            return;
+        }
+        requestCoalescer.invalidate("messages:" + channelId + ":");
+        changedUris.add(uri);
+        if (flushScheduled.compareAndSet(false, true)) {
+            notifier.schedule(this::flush, debounceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        McpSyncServer server = mcpServer.getIfAvailable();
+        for (String uri : changedUris) {
+            changedUris.remove(uri);
+            if (server != null) {
+                try {
+                    server.notifyResourcesUpdated(new McpSchema.ResourcesUpdatedNotification(uri));
+                } catch (RuntimeException e) {
+                    log.debug("Could not notify update of {}: {}", uri, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static String uriOf(GuildChannel channel) {
+        return CHANNEL_URI_PREFIX + channel.getId();
+    }
+}
@@ -0,0 +1,163 @@
+package dev.saseq.configs;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Striped scheduler for message sends. Every channel (or thread, or DM) has its own FIFO lane, drained by one virtual
+ * thread at a time, so concurrent sends to the same channel are posted in the order they were submitted while sends
+ * to different channels run fully in parallel. Enqueueing is lock-free: a lane is a {@link ConcurrentLinkedQueue}
+ * plus a pending counter, and the submitter that moves the counter from zero starts the drain. A write is counted
+ * before it is enqueued, so a drained lane can retire itself by moving the counter from zero to -1 without stranding
+ * a queued write; it is then removed, so only channels with pending writes hold a lane, and a submitter that finds a
+ * retired lane retries with a new one.
+ * <p>
+ * Order is guaranteed among writes that finish within their deadline. A write that runs past it is cancelled if its
+ * request was not sent yet; if it was, the next write of the lane starts without waiting for Discord's response, so
+ * the late write may still be applied after it.
+ */
+@Component
+public class ChannelWriteScheduler {
+
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final LongAdder writes = new LongAdder();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    /**
+     * Runs a write in the lane of the given channel after all writes submitted to it before, and waits for its result
+     * within the deadline of the current invocation. A write whose deadline passes while it is queued is skipped.
+     * See the class comment for writes that time out while running.
+     *
+     * @param laneKey The channel, thread or DM the write goes to.
+     * @param write   The write, e.g. {@code () -> CallDeadline.complete(channel.sendMessage(text))}.
+     * @return The result of the write.
+     */
+    public <T> T submit(String laneKey, Supplier<T> write) {
+        long deadline = CallDeadline.current();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable task = () -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (deadline != CallDeadline.NONE && System.currentTimeMillis() >= deadline) {
+                result.completeExceptionally(new DeadlineExceededException(deadline));
+                return;
+            }
+            try {
+                result.complete(CallDeadline.callWithin(deadline, write));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        };
+        writes.increment();
+        while (true) {
+            Lane lane = lanes.computeIfAbsent(laneKey, key -> new Lane());
+            int depth = lane.enter();
+            if (depth < 0) {
+                // Retired after its last write, nothing was enqueued to it
+                lanes.remove(laneKey, lane);
+                continue;
+            }
+            lane.queue.offer(task);
+            maxDepth.accumulateAndGet(depth, Math::max);
+            if (depth == 1) {
+                Thread.ofVirtual().name("Channel-Writer-" + laneKey).start(() -> {
+                    if (lane.drain()) {
+                        lanes.remove(laneKey, lane);
+                    }
+                });
+            }
+            break;
+        }
+        try {
+            return CallDeadline.await(result);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return The number of queued or running writes per channel, for channels with pending writes.
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        lanes.forEach((key, lane) -> {
+            int depth = lane.pending.get();
+            if (depth > 0) {
+                depths.put(key, depth);
+            }
+        });
+        return depths;
+    }
+
+    /**
+     * @return The number of writes waiting in the lane of the given channel, excluding the running one.
+     */
+    int getQueuedWrites(String laneKey) {
+        Lane lane = lanes.get(laneKey);
+        return lane == null ? 0 : lane.queue.size();
+    }
+
+    public int getLaneCount() {
+        return lanes.size();
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    public int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    private static final class Lane {
+        private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        /**
+         * Queued or running writes, or -1 once the lane is retired.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * Counts an offered task.
+         *
+         * @return The new number of pending writes, or -1 if the lane is retired.
+         */
+        private int enter() {
+            int count;
+            do {
+                count = pending.get();
+                if (count < 0) {
+                    return -1;
+                }
+            } while (!pending.compareAndSet(count, count + 1));
+            return count + 1;
+        }
+
+        /**
+         * @return Whether the lane was retired; false if a new write arrived and its submitter started a new drain.
+         */
+        private boolean drain() {
+            do {
+                Runnable task;
+                // The submitter counts a task before offering it, so a counted task may not be visible yet
+                while ((task = queue.poll()) == null) {
+                    Thread.onSpinWait();
+                }
+                task.run();
+            } while (pending.decrementAndGet() > 0);
+            return pending.compareAndSet(0, -1);
+        }
+    }
+}
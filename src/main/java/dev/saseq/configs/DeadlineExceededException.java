@@ -0,0 +1,21 @@
+package dev.saseq.configs;
+
+/**
+ * Thrown when a tool invocation runs past its {@link CallDeadline}.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private final long deadline;
+
+    public DeadlineExceededException(long deadline) {
+        super("Deadline exceeded");
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return The deadline that passed, as epoch milliseconds.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+}
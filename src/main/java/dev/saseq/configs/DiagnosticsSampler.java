@@ -0,0 +1,151 @@
+package dev.saseq.configs;
+
+import jakarta.annotation.PreDestroy;
+import net.dv8tion.jda.api.JDA;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the gateway ping of every connected bot and the GC pauses of the JVM on a background thread, so
+ * {@code get_diagnostics} can report percentiles over recent history. Each sample only reads values JDA and the JVM
+ * already track, it never makes a Discord request.
+ * <p>
+ * When a heartbeat file is configured, every sample in which all connected bots are {@link JDA.Status#CONNECTED}
+ * also rewrites it with the time and the gateway ping of each bot. A container health check can then test by the age
+ * of the file that the process is alive and its gateway connections are up. Bots that are not connected yet (JDA is
+ * created lazily) do not hold the heartbeat back.
+ * <p>
+ * The sampler is created eagerly despite lazy initialization: otherwise it would only start with the first tool that
+ * depends on it, and a tool allow-list without {@code get_metrics} and {@code get_diagnostics} would never write the
+ * heartbeat.
+ */
+@Component
+@Lazy(false)
+public class DiagnosticsSampler {
+
+    private static final Logger log = LoggerFactory.getLogger(DiagnosticsSampler.class);
+
+    private final LazyJDAProvider jdaProvider;
+    private final int historySize;
+    private final Path heartbeatFile;
+    private final Map<String, LatencyHistory> gatewayPings = new ConcurrentHashMap<>();
+    private final LatencyHistory gcPauses;
+    private final Map<String, long[]> gcTotals = new LinkedHashMap<>();
+    private final ScheduledExecutorService sampler;
+
+    /**
+     * @param sampleSeconds Interval between two samples.
+     * @param historySize   Samples retained per bot for percentiles.
+     * @param heartbeatFile File rewritten on every sample; empty disables the heartbeat.
+     */
+    public DiagnosticsSampler(LazyJDAProvider jdaProvider,
+                              @Value("${discord.mcp.diagnostics.sample-seconds:10}") long sampleSeconds,
+                              @Value("${discord.mcp.diagnostics.history-size:360}") int historySize,
+                              @Value("${discord.mcp.diagnostics.heartbeat-file:}") String heartbeatFile) {
+        this.jdaProvider = jdaProvider;
+        this.historySize = historySize;
+        this.heartbeatFile = heartbeatFile.isBlank() ? null : Path.of(heartbeatFile);
+        this.gcPauses = new LatencyHistory(historySize);
+        this.sampler = Executors.newSingleThreadScheduledExecutor(SharedJdaExecutors.daemonThreads("Diagnostics-Sampler"));
+        this.sampler.scheduleWithFixedDelay(this::sample, 0, Math.max(1, sampleSeconds), TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return Gateway heartbeat round-trip times in milliseconds per bot that has been connected.
+     */
+    public Map<String, LatencyHistory> getGatewayPings() {
+        return gatewayPings;
+    }
+
+    /**
+     * @return Average stop-the-world GC pause in milliseconds per sample interval in which a collection ran.
+     */
+    public LatencyHistory getGcPauses() {
+        return gcPauses;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sampler.shutdownNow();
+    }
+
+    private void sample() {
+        try {
+            Map<String, JDA> bots = jdaProvider.getConnectedBots();
+            bots.forEach((bot, jda) -> {
+                long ping = jda.getGatewayPing();
+                // -1 until the first heartbeat was acknowledged
+                if (ping >= 0) {
+                    gatewayPings.computeIfAbsent(bot, key -> new LatencyHistory(historySize)).record(ping);
+                }
+            });
+            sampleGc();
+            if (heartbeatFile != null && bots.values().stream().allMatch(jda -> jda.getStatus() == JDA.Status.CONNECTED)) {
+                writeHeartbeat(bots);
+            }
+        } catch (RuntimeException | IOException e) {
+            // A failed sample must not cancel the schedule
+            log.warn("Diagnostics sample failed: {}", e.getMessage());
+        }
+    }
+
+    private void sampleGc() {
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        for (GarbageCollectorMXBean collector : collectors) {
+            if (isConcurrent(collector.getName())) {
+                continue;
+            }
+            long count = collector.getCollectionCount();
+            long time = collector.getCollectionTime();
+            if (count < 0 || time < 0) {
+                continue;
+            }
+            long[] previous = gcTotals.put(collector.getName(), new long[]{count, time});
+            if (previous != null && count > previous[0]) {
+                gcPauses.record((time - previous[1]) / (count - previous[0]));
+            }
+        }
+    }
+
+    /**
+     * @return Whether the collector's time is spent concurrently with the application (e.g. "G1 Concurrent GC",
+     * "ZGC Major Cycles", "Shenandoah Cycles"), so it is not a pause.
+     */
+    private static boolean isConcurrent(String collector) {
+        return collector.contains("Concurrent") || collector.endsWith("Cycles");
+    }
+
+    private void writeHeartbeat(Map<String, JDA> bots) throws IOException {
+        StringBuilder content = new StringBuilder(Instant.now().toString()).append('\n');
+        bots.forEach((bot, jda) -> content.append(bot).append(' ').append(jda.getStatus())
+                .append(' ').append(jda.getGatewayPing()).append(" ms\n"));
+        Path parent = heartbeatFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        // Replaced atomically, so a health check never reads a partial file
+        Path temp = Files.createTempFile(parent, ".heartbeat", ".tmp");
+        try {
+            Files.writeString(temp, content);
+            Files.move(temp, heartbeatFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -1,43 +1,53 @@
 package dev.saseq.configs;
 
-import dev.saseq.services.DiscordService;
-import dev.saseq.services.MessageService;
-import dev.saseq.services.UserService;
-import dev.saseq.services.ChannelService;
-import dev.saseq.services.CategoryService;
-import dev.saseq.services.WebhookService;
-import dev.saseq.services.ForumService;
-import dev.saseq.services.ThreadService;
-import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.JDABuilder;
-import net.dv8tion.jda.api.requests.GatewayIntent;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.ToolCallbackProvider;
 import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.util.Arrays;
+import java.util.List;
 
 @Configuration
+@ImportRuntimeHints(DiscordMcpRuntimeHints.class)
 public class DiscordMcpConfig {
     @Bean
-    public ToolCallbackProvider discordTools(DiscordService discordService,
-                                             MessageService messageService,
-                                             UserService userService,
-                                             ChannelService channelService,
-                                             CategoryService categoryService,
-                                             WebhookService webhookService,
-                                             ForumService forumService,
-                                             ThreadService threadService) {
-        return MethodToolCallbackProvider.builder().toolObjects(
-                discordService,
-                messageService,
-                userService,
-                channelService,
-                categoryService,
-                webhookService,
-                forumService,
-                threadService
-        ).build();
+    public ToolCallbackProvider discordTools(ToolSelection toolSelection,
+                                             ApplicationContext applicationContext,
+                                             LazyJDAProvider jdaProvider,
+                                             PriorityLanes lanes,
+                                             @Value("${discord.mcp.deadline.default-ms:30000}") long defaultTimeoutMs,
+                                             @Value("${discord.mcp.deadline.max-ms:600000}") long maxTimeoutMs) {
+        // Only services with enabled tools are looked up, so disabled services are never instantiated
+        Object[] toolObjects = toolSelection.getServiceBeanNames().stream()
+                .map(applicationContext::getBean)
+                .toArray();
+        ToolCallback[] toolCallbacks = MethodToolCallbackProvider.builder().toolObjects(toolObjects).build().getToolCallbacks();
+        ToolCallback[] discordToolCallbacks = Arrays.stream(toolCallbacks)
+                .filter(toolCallback -> toolSelection.isEnabled(toolCallback.getToolDefinition().name()))
+                .map(toolCallback -> new DiscordToolCallback(toolCallback, jdaProvider, lanes,
+                        timeoutOf(applicationContext, toolCallback.getToolDefinition().name(), defaultTimeoutMs), maxTimeoutMs))
+                .toArray(ToolCallback[]::new);
+        return () -> discordToolCallbacks;
+    }
+
+    /**
+     * Tools that wait or scan for long by design override the default with {@code discord.mcp.deadline.tools.<tool>}.
+     */
+    private static long timeoutOf(ApplicationContext applicationContext, String tool, long defaultTimeoutMs) {
+        return applicationContext.getEnvironment().getProperty("discord.mcp.deadline.tools." + tool, Long.class, defaultTimeoutMs);
+    }
+
+    @Bean
+    public List<McpServerFeatures.SyncResourceSpecification> discordResources(ObjectProvider<ChannelResourcePublisher> channelResources) {
+        ChannelResourcePublisher publisher = channelResources.getIfAvailable();
+        return publisher == null ? List.of() : publisher.resources();
     }
 
 }
@@ -0,0 +1,63 @@
+package dev.saseq.configs;
+
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.core.type.filter.TypeFilter;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import java.util.List;
+
+/**
+ * Reflection hints for the native image build.
+ * <p>
+ * {@code MethodToolCallbackProvider} discovers and invokes {@code @Tool} methods reflectively, and JDA's
+ * {@link ListenerAdapter} resolves its {@code onXxx} handlers by event class at runtime, so the tool services,
+ * our listeners and all JDA event types have to be registered.
+ */
+public class DiscordMcpRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final String SERVICES_PACKAGE = "dev.saseq.services";
+    private static final String CONFIGS_PACKAGE = "dev.saseq.configs";
+    private static final String JDA_EVENTS_PACKAGE = "net.dv8tion.jda.api.events";
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        register(hints, classLoader, new AnnotationTypeFilter(Service.class), List.of(SERVICES_PACKAGE),
+                MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        register(hints, classLoader, new AssignableTypeFilter(ListenerAdapter.class), List.of(SERVICES_PACKAGE, CONFIGS_PACKAGE),
+                MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.INVOKE_DECLARED_METHODS);
+        register(hints, classLoader, new AssignableTypeFilter(GenericEvent.class), List.of(JDA_EVENTS_PACKAGE),
+                MemberCategory.INVOKE_PUBLIC_METHODS);
+        hints.reflection().registerType(ListenerAdapter.class,
+                MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.INVOKE_DECLARED_METHODS);
+    }
+
+    private static void register(RuntimeHints hints, ClassLoader classLoader, TypeFilter filter,
+                                 List<String> basePackages, MemberCategory... categories) {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false) {
+            @Override
+            protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+                // Interfaces and abstract event types are dispatched too
+                return true;
+            }
+        };
+        scanner.addIncludeFilter(filter);
+        for (String basePackage : basePackages) {
+            for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+                String className = candidate.getBeanClassName();
+                if (className != null && ClassUtils.isPresent(className, classLoader)) {
+                    hints.reflection().registerType(ClassUtils.resolveClassName(className, classLoader), categories);
+                }
+            }
+        }
+    }
+}
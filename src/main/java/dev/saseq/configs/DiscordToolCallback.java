@@ -0,0 +1,196 @@
+package dev.saseq.configs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.Set;
+
+/**
+ * Wraps every Discord tool callback to apply per-invocation context before the tool method runs.
+ * When several bot profiles are configured, each tool gets an optional {@code bot} argument that selects
+ * the JDA instance used by the invocation. Calls are accounted in the interactive or bulk {@link PriorityLanes lane},
+ * and keep their bot from being disconnected as idle while they run.
+ * <p>
+ * Every call runs within a {@link CallDeadline}, taken from the optional {@code timeoutMs} argument or the
+ * tool's default. A call that runs past it returns a structured timeout result instead of blocking the client.
+ * Each call is recorded as a {@link ToolCallEvent} when a Flight Recorder recording is running.
+ */
+public class DiscordToolCallback implements ToolCallback {
+
+    static final String BOT_ARGUMENT = "bot";
+    static final String TIMEOUT_ARGUMENT = "timeoutMs";
+    private static final String DEADLINE_EXCEEDED_STATUS = "deadline_exceeded";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ToolCallback delegate;
+    private final ToolDefinition toolDefinition;
+    private final boolean botRouting;
+    private final PriorityLanes lanes;
+    private final LazyJDAProvider jdaProvider;
+    private final long defaultTimeoutMs;
+    private final long maxTimeoutMs;
+
+    /**
+     * @param defaultTimeoutMs Deadline of calls without a {@code timeoutMs} argument, 0 for none.
+     * @param maxTimeoutMs     Upper bound of the {@code timeoutMs} argument, 0 for none.
+     */
+    public DiscordToolCallback(ToolCallback delegate, LazyJDAProvider jdaProvider, PriorityLanes lanes, long defaultTimeoutMs, long maxTimeoutMs) {
+        this.delegate = delegate;
+        this.jdaProvider = jdaProvider;
+        this.lanes = lanes;
+        this.defaultTimeoutMs = defaultTimeoutMs;
+        this.maxTimeoutMs = maxTimeoutMs;
+        Set<String> botProfiles = jdaProvider.getBotProfiles();
+        this.botRouting = botProfiles.size() > 1;
+        this.toolDefinition = withContextArguments(delegate.getToolDefinition(), botRouting ? botProfiles : Set.of(), defaultTimeoutMs, maxTimeoutMs);
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return toolDefinition;
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        JsonNode arguments = readArguments(toolInput);
+        String bot = botRouting ? readText(arguments, BOT_ARGUMENT) : null;
+        long timeoutMs = readTimeout(arguments);
+        // Calls made by another tool (e.g. a batch step) let the outer call report the timeout
+        boolean nested = CallDeadline.current() != CallDeadline.NONE;
+        long startedAt = System.currentTimeMillis();
+        ToolCallEvent recording = new ToolCallEvent();
+        recording.begin();
+        try {
+            String result = lanes.run(() -> CallDeadline.callWithin(timeoutMs > 0 ? startedAt + timeoutMs : CallDeadline.NONE,
+                    () -> BotContext.callAs(bot, () -> jdaProvider.callInFlight(BotContext.current(), () -> toolContext == null
+                            ? delegate.call(toolInput)
+                            : delegate.call(toolInput, toolContext)))));
+            commit(recording, bot, toolInput, "ok", result);
+            return result;
+        } catch (RuntimeException e) {
+            boolean deadlineExceeded = isCausedByDeadline(e);
+            commit(recording, bot, toolInput, deadlineExceeded ? DEADLINE_EXCEEDED_STATUS : "error", null);
+            if (nested || !deadlineExceeded) {
+                throw e;
+            }
+            return MAPPER.createObjectNode()
+                    .put("status", DEADLINE_EXCEEDED_STATUS)
+                    .put("tool", toolDefinition.name())
+                    .put("timeoutMs", timeoutMs)
+                    .put("elapsedMs", System.currentTimeMillis() - startedAt)
+                    .put("message", "The call did not finish in time. Requests not yet sent to Discord were cancelled, " +
+                            "requests already sent may have been applied")
+                    .toString();
+        }
+    }
+
+    /**
+     * @return Whether a tool result is the structured timeout result of a call that ran past its deadline.
+     */
+    public static boolean isDeadlineExceeded(String result) {
+        return result != null && result.startsWith("{\"status\":\"" + DEADLINE_EXCEEDED_STATUS + "\"");
+    }
+
+    private void commit(ToolCallEvent recording, String bot, String toolInput, String outcome, String result) {
+        recording.end();
+        if (!recording.shouldCommit()) {
+            return;
+        }
+        recording.tool = toolDefinition.name();
+        recording.bot = bot == null ? BotContext.DEFAULT_BOT : bot;
+        recording.lane = lanes.isBulk() ? "bulk" : "interactive";
+        recording.outcome = outcome;
+        recording.argumentSize = toolInput == null ? 0 : toolInput.length();
+        recording.resultSize = result == null ? 0 : result.length();
+        recording.commit();
+    }
+
+    private static boolean isCausedByDeadline(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeadlineExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The requested deadline clamped to the maximum, or the tool's default if none was requested.
+     */
+    private long readTimeout(JsonNode arguments) {
+        String timeout = readText(arguments, TIMEOUT_ARGUMENT);
+        if (timeout == null) {
+            return defaultTimeoutMs;
+        }
+        long timeoutMs;
+        try {
+            timeoutMs = Long.parseLong(timeout);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("timeoutMs must be a positive integer");
+        }
+        if (timeoutMs <= 0) {
+            throw new IllegalArgumentException("timeoutMs must be a positive integer");
+        }
+        return maxTimeoutMs > 0 ? Math.min(timeoutMs, maxTimeoutMs) : timeoutMs;
+    }
+
+    private static JsonNode readArguments(String toolInput) {
+        if (toolInput == null || toolInput.isEmpty()) {
+            return null;
+        }
+        try {
+            return MAPPER.readTree(toolInput);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static String readText(JsonNode arguments, String name) {
+        JsonNode value = arguments == null ? null : arguments.get(name);
+        return value == null || value.isNull() || value.asText().isEmpty() ? null : value.asText();
+    }
+
+    private static ToolDefinition withContextArguments(ToolDefinition definition, Set<String> botProfiles, long defaultTimeoutMs, long maxTimeoutMs) {
+        try {
+            ObjectNode schema = (ObjectNode) MAPPER.readTree(definition.inputSchema());
+            ObjectNode properties = schema.has("properties") ? (ObjectNode) schema.get("properties") : schema.putObject("properties");
+            if (!botProfiles.isEmpty()) {
+                ObjectNode bot = properties.putObject(BOT_ARGUMENT);
+                bot.put("type", "string");
+                bot.put("description", "Bot profile to use (optional, defaults to '" + BotContext.DEFAULT_BOT + "')");
+                botProfiles.forEach(bot.putArray("enum")::add);
+            }
+            ObjectNode timeout = properties.putObject(TIMEOUT_ARGUMENT);
+            timeout.put("type", "integer");
+            timeout.put("minimum", 1);
+            if (maxTimeoutMs > 0) {
+                timeout.put("maximum", maxTimeoutMs);
+            }
+            timeout.put("description", "Maximum duration of this call in milliseconds (optional, defaults to "
+                    + (defaultTimeoutMs > 0 ? defaultTimeoutMs : "no limit") + ")");
+            return ToolDefinition.builder()
+                    .name(definition.name())
+                    .description(definition.description())
+                    .inputSchema(MAPPER.writeValueAsString(schema))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid input schema of tool " + definition.name(), e);
+        }
+    }
+}
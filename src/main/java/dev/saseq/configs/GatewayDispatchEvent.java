@@ -0,0 +1,28 @@
+package dev.saseq.configs;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for the dispatch of one gateway event to the listeners, emitted by
+ * {@link RecordingEventManager}. The event duration is the time spent in the listeners.
+ */
+@Name("dev.saseq.GatewayDispatch")
+@Label("Gateway Event Dispatch")
+@Category({"Discord MCP", "Gateway"})
+@Description("A gateway event handled by the JDA event listeners")
+@StackTrace(false)
+public class GatewayDispatchEvent extends jdk.jfr.Event {
+
+    @Label("Event Type")
+    String eventType;
+
+    @Label("Queue Wait")
+    @Description("Time the event waited in the event pool queue, -1 if unknown")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueWait = -1;
+}
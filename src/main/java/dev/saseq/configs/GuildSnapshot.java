@@ -0,0 +1,286 @@
+package dev.saseq.configs;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.entities.channel.attribute.ICategorizableChannel;
+import net.dv8tion.jda.api.entities.channel.attribute.IPostContainer;
+import net.dv8tion.jda.api.entities.channel.concrete.ThreadChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.StandardGuildMessageChannel;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable copy of the structure of the guilds a bot is in: channels with their forum tags, active threads and roles.
+ * Stored in a compact binary file (IDs as longs, strings length-prefixed UTF-8) that is read through a memory
+ * mapping, so loading it at startup costs a few milliseconds even for large servers.
+ */
+public final class GuildSnapshot {
+
+    private static final int MAGIC = 0x444d4753; // "DMGS"
+    private static final int VERSION = 1;
+    private static final int NONE = 0;
+
+    private final long savedAt;
+    private final Map<String, GuildEntry> guilds;
+
+    public GuildSnapshot(long savedAt, Map<String, GuildEntry> guilds) {
+        this.savedAt = savedAt;
+        this.guilds = guilds;
+    }
+
+    public record GuildEntry(String id, String name, List<ChannelEntry> channels, List<ThreadEntry> threads,
+                             List<RoleEntry> roles) {
+
+        public ChannelEntry channel(String channelId) {
+            return channels.stream().filter(channel -> channel.id().equals(channelId)).findFirst().orElse(null);
+        }
+
+        /**
+         * @return The channels of the given type whose name matches, ignoring case.
+         */
+        public List<ChannelEntry> channelsByName(String name, ChannelType type) {
+            return channels.stream()
+                    .filter(channel -> (type == null || channel.type() == type) && channel.name().equalsIgnoreCase(name))
+                    .toList();
+        }
+
+        public List<ChannelEntry> channelsOfType(ChannelType type) {
+            return channels.stream().filter(channel -> channel.type() == type).toList();
+        }
+
+        public List<ChannelEntry> channelsInCategory(String categoryId) {
+            return channels.stream().filter(channel -> categoryId.equals(channel.parentId())).toList();
+        }
+
+        public List<ThreadEntry> threadsIn(String parentId) {
+            return threads.stream().filter(thread -> thread.parentId().equals(parentId)).toList();
+        }
+    }
+
+    /**
+     * @param parentId The category of the channel, or null.
+     * @param topic    The topic, or null.
+     * @param tags     The available tags of forum and media channels.
+     */
+    public record ChannelEntry(String id, String name, ChannelType type, String parentId, String topic, List<TagEntry> tags) {
+    }
+
+    public record TagEntry(String id, String name, boolean moderated) {
+    }
+
+    public record ThreadEntry(String id, String name, String parentId, boolean archived, boolean locked, boolean pinned) {
+    }
+
+    /**
+     * @param colorRaw The color as RGB, or {@link Role#DEFAULT_COLOR_RAW} if the role has none.
+     */
+    public record RoleEntry(String id, String name, int colorRaw, boolean hoisted, boolean mentionable, boolean managed) {
+    }
+
+    /**
+     * @return The time the snapshot was taken, as epoch milliseconds.
+     */
+    public long getSavedAt() {
+        return savedAt;
+    }
+
+    public Map<String, GuildEntry> getGuilds() {
+        return guilds;
+    }
+
+    public GuildEntry getGuild(String guildId) {
+        return guilds.get(guildId);
+    }
+
+    /**
+     * Copies the structure of every guild in the cache of a ready JDA instance.
+     */
+    public static GuildSnapshot of(JDA jda) {
+        Map<String, GuildEntry> guilds = new LinkedHashMap<>();
+        for (Guild guild : jda.getGuilds()) {
+            List<ChannelEntry> channels = new ArrayList<>();
+            for (GuildChannel channel : guild.getChannels()) {
+                String parentId = channel instanceof ICategorizableChannel categorizable ? categorizable.getParentCategoryId() : null;
+                String topic = channel instanceof StandardGuildMessageChannel messageChannel ? messageChannel.getTopic()
+                        : channel instanceof IPostContainer container ? container.getTopic() : null;
+                List<TagEntry> tags = channel instanceof IPostContainer container
+                        ? container.getAvailableTags().stream().map(tag -> new TagEntry(tag.getId(), tag.getName(), tag.isModerated())).toList()
+                        : List.of();
+                channels.add(new ChannelEntry(channel.getId(), channel.getName(), channel.getType(), parentId, topic, tags));
+            }
+            List<ThreadEntry> threads = new ArrayList<>();
+            for (ThreadChannel thread : guild.getThreadChannels()) {
+                threads.add(new ThreadEntry(thread.getId(), thread.getName(), thread.getParentChannel().getId(),
+                        thread.isArchived(), thread.isLocked(), thread.isPinned()));
+            }
+            List<RoleEntry> roles = new ArrayList<>();
+            for (Role role : guild.getRoles()) {
+                roles.add(new RoleEntry(role.getId(), role.getName(), role.getColorRaw(), role.isHoisted(),
+                        role.isMentionable(), role.isManaged()));
+            }
+            guilds.put(guild.getId(), new GuildEntry(guild.getId(), guild.getName(), channels, threads, roles));
+        }
+        return new GuildSnapshot(System.currentTimeMillis(), guilds);
+    }
+
+    /**
+     * Writes the snapshot to a temporary file next to the target and moves it into place, so a crash mid-write
+     * never leaves a truncated snapshot.
+     */
+    public void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(savedAt);
+                out.writeInt(guilds.size());
+                for (GuildEntry guild : guilds.values()) {
+                    writeId(out, guild.id());
+                    writeString(out, guild.name());
+                    out.writeInt(guild.channels().size());
+                    for (ChannelEntry channel : guild.channels()) {
+                        writeId(out, channel.id());
+                        writeString(out, channel.name());
+                        out.writeInt(channel.type().getId());
+                        writeId(out, channel.parentId());
+                        writeString(out, channel.topic());
+                        out.writeInt(channel.tags().size());
+                        for (TagEntry tag : channel.tags()) {
+                            writeId(out, tag.id());
+                            writeString(out, tag.name());
+                            out.writeBoolean(tag.moderated());
+                        }
+                    }
+                    out.writeInt(guild.threads().size());
+                    for (ThreadEntry thread : guild.threads()) {
+                        writeId(out, thread.id());
+                        writeString(out, thread.name());
+                        writeId(out, thread.parentId());
+                        out.writeByte((thread.archived() ? 1 : 0) | (thread.locked() ? 2 : 0) | (thread.pinned() ? 4 : 0));
+                    }
+                    out.writeInt(guild.roles().size());
+                    for (RoleEntry role : guild.roles()) {
+                        writeId(out, role.id());
+                        writeString(out, role.name());
+                        out.writeInt(role.colorRaw());
+                        out.writeByte((role.hoisted() ? 1 : 0) | (role.mentionable() ? 2 : 0) | (role.managed() ? 4 : 0));
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write(Path)} through a read-only memory mapping.
+     *
+     * @throws IOException If the file cannot be read or was written by an incompatible version.
+     */
+    public static GuildSnapshot read(Path file) throws IOException {
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("Not a guild snapshot of this version: " + file);
+            }
+            long savedAt = in.getLong();
+            int guildCount = in.getInt();
+            Map<String, GuildEntry> guilds = new LinkedHashMap<>();
+            for (int g = 0; g < guildCount; g++) {
+                String guildId = readId(in);
+                String guildName = readString(in);
+                int channelCount = in.getInt();
+                List<ChannelEntry> channels = new ArrayList<>(channelCount);
+                for (int c = 0; c < channelCount; c++) {
+                    String id = readId(in);
+                    String name = readString(in);
+                    ChannelType type = ChannelType.fromId(in.getInt());
+                    String parentId = readId(in);
+                    String topic = readString(in);
+                    int tagCount = in.getInt();
+                    List<TagEntry> tags = new ArrayList<>(tagCount);
+                    for (int t = 0; t < tagCount; t++) {
+                        tags.add(new TagEntry(readId(in), readString(in), in.get() != 0));
+                    }
+                    channels.add(new ChannelEntry(id, name, type, parentId, topic, List.copyOf(tags)));
+                }
+                int threadCount = in.getInt();
+                List<ThreadEntry> threads = new ArrayList<>(threadCount);
+                for (int t = 0; t < threadCount; t++) {
+                    String id = readId(in);
+                    String name = readString(in);
+                    String parentId = readId(in);
+                    byte flags = in.get();
+                    threads.add(new ThreadEntry(id, name, parentId, (flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0));
+                }
+                int roleCount = in.getInt();
+                List<RoleEntry> roles = new ArrayList<>(roleCount);
+                for (int r = 0; r < roleCount; r++) {
+                    String id = readId(in);
+                    String name = readString(in);
+                    int colorRaw = in.getInt();
+                    byte flags = in.get();
+                    roles.add(new RoleEntry(id, name, colorRaw, (flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0));
+                }
+                guilds.put(guildId, new GuildEntry(guildId, guildName, List.copyOf(channels), List.copyOf(threads), List.copyOf(roles)));
+            }
+            return new GuildSnapshot(savedAt, guilds);
+        } catch (RuntimeException e) {
+            // BufferUnderflowException and friends of a truncated or corrupt file
+            throw new IOException("Corrupt guild snapshot " + file + ": " + e, e);
+        }
+    }
+
+    private static void writeId(DataOutputStream out, String id) throws IOException {
+        out.writeLong(id == null ? NONE : Long.parseUnsignedLong(id));
+    }
+
+    private static String readId(ByteBuffer in) {
+        long id = in.getLong();
+        return id == NONE ? null : Long.toUnsignedString(id);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
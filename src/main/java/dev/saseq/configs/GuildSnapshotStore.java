@@ -0,0 +1,197 @@
+package dev.saseq.configs;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import net.dv8tion.jda.api.JDA;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm-start copy of the guild structure per bot profile. Snapshots are saved periodically and on shutdown, and loaded
+ * at startup, so structural read tools ({@code list_channels}, {@code find_category}, {@code list_roles}, ...) can
+ * answer right away from the last known structure, marked as possibly stale, while the bot connects in the background
+ * instead of blocking the call until the gateway is ready.
+ * <p>
+ * Once a bot is ready, its snapshot is replaced by the live structure and saved, and tools read the JDA cache again.
+ * The snapshot also covers the time after an idle bot disconnected (see {@code discord.mcp.bots.idle-timeout-minutes}).
+ */
+@Component
+public class GuildSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(GuildSnapshotStore.class);
+    private static final String EXTENSION = ".snapshot";
+
+    private final LazyJDAProvider jdaProvider;
+    private final Path directory;
+    private final Map<String, GuildSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService saver;
+
+    /**
+     * @param directory   Directory of the snapshot files, one per bot profile; empty disables snapshots.
+     * @param saveMinutes Interval between two saves of the snapshots of connected bots.
+     */
+    public GuildSnapshotStore(LazyJDAProvider jdaProvider,
+                              @Value("${discord.mcp.snapshot.directory:./data/snapshots}") String directory,
+                              @Value("${discord.mcp.snapshot.save-minutes:10}") long saveMinutes) {
+        this.jdaProvider = jdaProvider;
+        this.directory = directory.isBlank() ? null : Path.of(directory);
+        if (this.directory == null) {
+            this.saver = null;
+            return;
+        }
+        this.saver = Executors.newSingleThreadScheduledExecutor(SharedJdaExecutors.daemonThreads("Guild-Snapshot-Saver"));
+        long interval = Math.max(1, saveMinutes);
+        this.saver.scheduleWithFixedDelay(this::saveConnected, interval, interval, TimeUnit.MINUTES);
+        jdaProvider.addReadyListener((bot, jda) -> saver.execute(() -> reconcile(bot, jda)));
+    }
+
+    @PostConstruct
+    public void load() {
+        if (directory == null) {
+            return;
+        }
+        for (String bot : jdaProvider.getBotProfiles()) {
+            Path file = fileOf(bot);
+            try {
+                GuildSnapshot snapshot = GuildSnapshot.read(file);
+                snapshots.put(bot, snapshot);
+                log.info("Loaded guild snapshot of bot {} from {} ({} guilds)", bot,
+                        Instant.ofEpochMilli(snapshot.getSavedAt()), snapshot.getGuilds().size());
+            } catch (NoSuchFileException e) {
+                // First start of this bot profile
+            } catch (IOException e) {
+                log.warn("Ignoring guild snapshot of bot {}: {}", bot, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the snapshot of a guild if the bot of the current invocation is not ready yet, and starts connecting it
+     * in the background. Tools answer from the returned guild and prefix their result with {@link #staleNotice}.
+     *
+     * @return The guild as of the last snapshot, or null if the bot is ready or the guild is not in the snapshot,
+     * in which case the tool reads the live JDA cache.
+     */
+    public GuildSnapshot.GuildEntry getGuildIfNotReady(String guildId) {
+        GuildSnapshot snapshot = getIfNotReady();
+        return snapshot == null ? null : snapshot.getGuild(guildId);
+    }
+
+    /**
+     * Like {@link #getGuildIfNotReady(String)} for tools that address a channel without its guild.
+     */
+    public GuildSnapshot.GuildEntry getGuildOfChannelIfNotReady(String channelId) {
+        GuildSnapshot snapshot = getIfNotReady();
+        if (snapshot == null) {
+            return null;
+        }
+        return snapshot.getGuilds().values().stream()
+                .filter(guild -> guild.channel(channelId) != null)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * @return The first line of a result answered from a snapshot.
+     */
+    public String staleNotice() {
+        GuildSnapshot snapshot = snapshots.get(BotContext.current());
+        return "(From the server snapshot of " + (snapshot == null ? "an earlier run" : Instant.ofEpochMilli(snapshot.getSavedAt())) +
+                ", may be stale: the bot is still connecting)\n";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (saver == null) {
+            return;
+        }
+        saver.shutdownNow();
+        // Runs before the JDA instances are shut down, since this bean depends on the provider
+        saveConnected();
+    }
+
+    private GuildSnapshot getIfNotReady() {
+        if (directory == null || jdaProvider.isConnected()) {
+            return null;
+        }
+        GuildSnapshot snapshot = snapshots.get(BotContext.current());
+        if (snapshot != null) {
+            jdaProvider.connectInBackground();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Replaces the snapshot of a bot that just became ready by its live structure and logs how much had changed.
+     */
+    private void reconcile(String bot, JDA jda) {
+        GuildSnapshot live = GuildSnapshot.of(jda);
+        GuildSnapshot previous = snapshots.put(bot, live);
+        if (previous != null) {
+            log.info("Reconciled guild snapshot of bot {} from {}: {} channels, threads or roles added or removed", bot,
+                    Instant.ofEpochMilli(previous.getSavedAt()), countChanges(previous, live));
+        }
+        save(bot, live);
+    }
+
+    private void saveConnected() {
+        jdaProvider.getConnectedBots().forEach((bot, jda) -> {
+            GuildSnapshot snapshot = GuildSnapshot.of(jda);
+            snapshots.put(bot, snapshot);
+            save(bot, snapshot);
+        });
+    }
+
+    private void save(String bot, GuildSnapshot snapshot) {
+        try {
+            snapshot.write(fileOf(bot));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to save guild snapshot of bot {}: {}", bot, e.getMessage());
+        }
+    }
+
+    private Path fileOf(String bot) {
+        return directory.resolve(bot.replaceAll("[^A-Za-z0-9_.-]", "_") + EXTENSION);
+    }
+
+    private static int countChanges(GuildSnapshot previous, GuildSnapshot live) {
+        Set<String> before = ids(previous);
+        Set<String> after = ids(live);
+        int changes = 0;
+        for (String id : before) {
+            if (!after.contains(id)) {
+                changes++;
+            }
+        }
+        for (String id : after) {
+            if (!before.contains(id)) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    private static Set<String> ids(GuildSnapshot snapshot) {
+        Set<String> ids = new HashSet<>();
+        for (GuildSnapshot.GuildEntry guild : snapshot.getGuilds().values()) {
+            guild.channels().forEach(channel -> ids.add(channel.id()));
+            guild.threads().forEach(thread -> ids.add(thread.id()));
+            guild.roles().forEach(role -> ids.add(role.id()));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,150 @@
+package dev.saseq.configs;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks invalid requests (401, 403 and 429 responses other than shared-scope rate limits) of every bot over a sliding
+ * window. Discord bans the IP for a while once an IP exceeds its limit (10,000 per 10 minutes). As the count
+ * approaches the limit, requests are delayed increasingly, but never past the deadline of their tool call (see
+ * {@link CallDeadline}); close to the limit, they fail locally without reaching Discord until older invalid requests
+ * leave the window.
+ * <p>
+ * Installed as an interceptor of the HTTP client shared by all JDA instances (see {@link SharedJdaExecutors}).
+ */
+@Component
+public class InvalidRequestBudget implements Interceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(InvalidRequestBudget.class);
+    private static final int BUCKETS = 60;
+
+    private final int limit;
+    private final double throttleRatio;
+    private final double rejectRatio;
+    private final long maxDelayMs;
+    private final long bucketMs;
+    private final int[] counts = new int[BUCKETS];
+    private final long[] bucketStarts = new long[BUCKETS];
+    private long total;
+    private long throttled;
+    private long rejected;
+
+    /**
+     * @param limit         Invalid requests allowed per window.
+     * @param windowSeconds Length of the sliding window.
+     * @param throttleRatio Share of the limit from which requests are delayed.
+     * @param rejectRatio   Share of the limit from which requests fail locally.
+     * @param maxDelayMs    Delay of a request just below the reject ratio.
+     */
+    public InvalidRequestBudget(@Value("${discord.mcp.invalid-requests.limit:10000}") int limit,
+                                @Value("${discord.mcp.invalid-requests.window-seconds:600}") long windowSeconds,
+                                @Value("${discord.mcp.invalid-requests.throttle-ratio:0.5}") double throttleRatio,
+                                @Value("${discord.mcp.invalid-requests.reject-ratio:0.9}") double rejectRatio,
+                                @Value("${discord.mcp.invalid-requests.max-delay-ms:2000}") long maxDelayMs) {
+        this.limit = limit;
+        this.throttleRatio = throttleRatio;
+        this.rejectRatio = rejectRatio;
+        this.maxDelayMs = maxDelayMs;
+        this.bucketMs = Math.max(1, TimeUnit.SECONDS.toMillis(windowSeconds) / BUCKETS);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        long deadline = CallDeadline.takeRequestDeadline();
+        // Only API requests count, not attachment downloads from the CDN
+        if (!chain.request().url().encodedPath().startsWith("/api/")) {
+            return chain.proceed(chain.request());
+        }
+        double usage = getUsage();
+        if (usage >= rejectRatio) {
+            synchronized (this) {
+                rejected++;
+            }
+            throw new IOException("Refusing request: " + getCount() + " invalid requests in the current window, Discord bans the IP at " + limit);
+        }
+        if (usage >= throttleRatio) {
+            long delay = (long) (maxDelayMs * (usage - throttleRatio) / (rejectRatio - throttleRatio));
+            synchronized (this) {
+                throttled++;
+            }
+            // The throttle never holds a request past the deadline of its tool call
+            long remaining = deadline == CallDeadline.NONE ? Long.MAX_VALUE : deadline - System.currentTimeMillis();
+            try {
+                Thread.sleep(Math.max(0, Math.min(delay, remaining)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while throttling", e);
+            }
+            if (delay >= remaining) {
+                throw new IOException("Refusing request: the call deadline passed while throttling invalid requests");
+            }
+        }
+
+        Response response = chain.proceed(chain.request());
+        int code = response.code();
+        // Shared rate limits are per resource and do not count towards the limit
+        if (code == 401 || code == 403 || code == 429 && !"shared".equals(response.header("X-RateLimit-Scope"))) {
+            record();
+        }
+        return response;
+    }
+
+    /**
+     * @return The number of invalid requests in the current window.
+     */
+    public synchronized int getCount() {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (now - bucketStarts[i] < bucketMs * BUCKETS) {
+                count += counts[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The share of the limit used in the current window.
+     */
+    public double getUsage() {
+        return (double) getCount() / limit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public synchronized long getTotalCount() {
+        return total;
+    }
+
+    public synchronized long getThrottledCount() {
+        return throttled;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    private synchronized void record() {
+        long now = System.currentTimeMillis();
+        long bucketStart = now - now % bucketMs;
+        int bucket = (int) (bucketStart / bucketMs % BUCKETS);
+        if (bucketStarts[bucket] != bucketStart) {
+            bucketStarts[bucket] = bucketStart;
+            counts[bucket] = 0;
+        }
+        counts[bucket]++;
+        total++;
+        if (counts[bucket] == 1 && getCount() >= limit * throttleRatio) {
+            log.warn("{} invalid requests (401/403/429) in the current window, throttling Discord requests", getCount());
+        }
+    }
+}
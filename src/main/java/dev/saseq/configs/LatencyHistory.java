@@ -0,0 +1,73 @@
+package dev.saseq.configs;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring buffer of the most recent latency samples, for percentiles over recent history.
+ */
+public class LatencyHistory {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+    private long total;
+
+    public LatencyHistory(int capacity) {
+        this.samples = new long[Math.max(1, capacity)];
+    }
+
+    public synchronized void record(long value) {
+        samples[next] = value;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+        total++;
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100.
+     * @return The percentile of the retained samples (nearest rank), or -1 if there are none.
+     */
+    public long percentile(double percentile) {
+        long[] sorted = snapshot();
+        if (sorted.length == 0) {
+            return -1;
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    /**
+     * @return The most recent sample, or -1 if there is none.
+     */
+    public synchronized long last() {
+        return size == 0 ? -1 : samples[(next - 1 + samples.length) % samples.length];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of samples recorded, including those no longer retained.
+     */
+    public synchronized long getTotalCount() {
+        return total;
+    }
+
+    /**
+     * Formats the percentiles of the retained samples, e.g. {@code p50 42 ms, p95 80 ms, p99 120 ms, max 150 ms}.
+     */
+    public String summary(String unit) {
+        if (size() == 0) {
+            return "no samples";
+        }
+        return "p50 " + percentile(50) + " " + unit + ", p95 " + percentile(95) + " " + unit +
+                ", p99 " + percentile(99) + " " + unit + ", max " + percentile(100) + " " + unit +
+                " (last " + size() + " samples)";
+    }
+
+    private synchronized long[] snapshot() {
+        return Arrays.copyOf(samples, size);
+    }
+}
@@ -1,42 +1,297 @@
 package dev.saseq.configs;
 
+import jakarta.annotation.PreDestroy;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
 @Component
 public class LazyJDAProvider {
-    
-    private volatile JDA jda;
-    private final String token;
-    private final Object lock = new Object();
-    
-    public LazyJDAProvider(@Value("${DISCORD_TOKEN:}") String token) {
-        this.token = token;
-    }
-    
+
+    private static final Logger log = LoggerFactory.getLogger(LazyJDAProvider.class);
+
+    private final Map<String, String> tokens = new LinkedHashMap<>();
+    private final Map<String, BotConnection> connections = new ConcurrentHashMap<>();
+    private final BeanFactory beanFactory;
+    private final SharedJdaExecutors executors;
+    private final ToolSelection toolSelection;
+    private final long idleTimeoutMs;
+    private final ScheduledExecutorService idleSweeper;
+    private final List<BiConsumer<String, JDA>> readyListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param token              Token of the default bot ({@code DISCORD_TOKEN}).
+     * @param bots               Additional bot profiles as {@code name=token} pairs separated by commas ({@code DISCORD_BOTS}).
+     * @param idleTimeoutMinutes Minutes without tool calls after which a bot disconnects when several bots are configured; 0 keeps them connected.
+     */
+    public LazyJDAProvider(@Value("${DISCORD_TOKEN:}") String token,
+                           @Value("${DISCORD_BOTS:}") String bots,
+                           @Value("${discord.mcp.bots.idle-timeout-minutes:30}") long idleTimeoutMinutes,
+                           BeanFactory beanFactory,
+                           SharedJdaExecutors executors,
+                           ToolSelection toolSelection) {
+        this.tokens.put(BotContext.DEFAULT_BOT, token);
+        for (String entry : bots.split(",")) {
+            int separator = entry.indexOf('=');
+            if (separator > 0) {
+                this.tokens.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+            }
+        }
+        this.beanFactory = beanFactory;
+        this.executors = executors;
+        this.toolSelection = toolSelection;
+        this.idleTimeoutMs = TimeUnit.MINUTES.toMillis(idleTimeoutMinutes);
+        if (isMultiBot() && idleTimeoutMs > 0) {
+            this.idleSweeper = Executors.newSingleThreadScheduledExecutor(SharedJdaExecutors.daemonThreads("JDA-Idle-Sweeper"));
+            this.idleSweeper.scheduleWithFixedDelay(this::disconnectIdleBots, 1, 1, TimeUnit.MINUTES);
+        } else {
+            this.idleSweeper = null;
+        }
+    }
+
+    /**
+     * @return The JDA instance of the bot selected for the current tool invocation (see {@link BotContext}).
+     */
     public JDA getJDA() {
-        if (jda == null) {
-            synchronized (lock) {
-                if (jda == null) {
-                    if (token == null || token.isEmpty()) {
-                        throw new IllegalStateException("DISCORD_TOKEN environment variable is not set");
+        return getJDA(BotContext.current());
+    }
+
+    /**
+     * Returns the JDA instance of a bot profile, connecting it first if it is not connected yet.
+     *
+     * @param bot The bot profile name.
+     * @return The ready JDA instance.
+     */
+    public JDA getJDA(String bot) {
+        String token = tokens.get(bot);
+        if (token == null) {
+            throw new IllegalArgumentException("Unknown bot profile: " + bot + ". Available: " + String.join(", ", getBotProfiles()));
+        }
+        if (token.isEmpty()) {
+            throw new IllegalStateException(BotContext.DEFAULT_BOT.equals(bot)
+                    ? "DISCORD_TOKEN environment variable is not set"
+                    : "No token configured for bot profile: " + bot);
+        }
+        return connections.computeIfAbsent(bot, name -> new BotConnection(name, token)).get();
+    }
+
+    /**
+     * @return Whether the bot selected for the current tool invocation is connected and ready, without connecting it.
+     */
+    public boolean isConnected() {
+        BotConnection connection = connections.get(BotContext.current());
+        return connection != null && connection.jda != null;
+    }
+
+    /**
+     * Starts connecting the bot selected for the current tool invocation on a background thread, so a tool that can
+     * answer without Discord (see {@link GuildSnapshotStore}) does not wait for the gateway. Does nothing if the bot is
+     * connected or connecting.
+     */
+    public void connectInBackground() {
+        String bot = BotContext.current();
+        String token = tokens.get(bot);
+        if (token != null && !token.isEmpty()) {
+            connections.computeIfAbsent(bot, name -> new BotConnection(name, token)).connectInBackground();
+        }
+    }
+
+    /**
+     * Runs a task that uses a bot, e.g. a tool call or a background job, keeping the idle sweeper from disconnecting
+     * the bot while it runs. The idle timeout counts from the end of the last such task.
+     *
+     * @param bot  The bot profile.
+     * @param task The task to run.
+     * @return The task result.
+     */
+    public <T> T callInFlight(String bot, Supplier<T> task) {
+        String token = tokens.get(bot);
+        if (token == null || token.isEmpty()) {
+            // getJDA reports the missing token
+            return task.get();
+        }
+        BotConnection connection = connections.computeIfAbsent(bot, name -> new BotConnection(name, token));
+        connection.enter();
+        try {
+            return task.get();
+        } finally {
+            connection.exit();
+        }
+    }
+
+    public void runInFlight(String bot, Runnable task) {
+        callInFlight(bot, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Registers a callback run with the bot profile and JDA instance every time a bot has connected and is ready.
+     */
+    public void addReadyListener(BiConsumer<String, JDA> listener) {
+        readyListeners.add(listener);
+    }
+
+    /**
+     * @return The JDA instances of the bots that are currently connected, without connecting any other bot.
+     */
+    public Map<String, JDA> getConnectedBots() {
+        Map<String, JDA> connected = new LinkedHashMap<>();
+        connections.forEach((bot, connection) -> {
+            JDA jda = connection.jda;
+            if (jda != null) {
+                connected.put(bot, jda);
+            }
+        });
+        return connected;
+    }
+
+    public Set<String> getBotProfiles() {
+        return Collections.unmodifiableSet(tokens.keySet());
+    }
+
+    public boolean isMultiBot() {
+        return tokens.size() > 1;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (idleSweeper != null) {
+            idleSweeper.shutdownNow();
+        }
+        connections.values().forEach(BotConnection::disconnect);
+    }
+
+    private void disconnectIdleBots() {
+        long now = System.currentTimeMillis();
+        connections.values().stream()
+                .filter(connection -> now - connection.lastUsed > idleTimeoutMs)
+                .forEach(BotConnection::disconnectIfIdle);
+    }
+
+    private JDA build(String bot, String token) throws InterruptedException {
+        // Only subscribe to the intents and caches the enabled tools need
+        JDA jda = JDABuilder.createLight(token, toolSelection.getGatewayIntents())
+                .enableCache(toolSelection.getCacheFlags())
+                .setMemberCachePolicy(toolSelection.isMemberCacheRequired() ? MemberCachePolicy.ALL : MemberCachePolicy.OWNER)
+                .setAutoReconnect(true)
+                // WEBHOOKS_UPDATE, which invalidates the webhook cache, is only delivered as a raw event. Raw events
+                // double every dispatch, so they are only enabled with the webhook tools that need the intent.
+                .setRawEventsEnabled(toolSelection.getGatewayIntents().contains(GatewayIntent.GUILD_WEBHOOKS))
+                .setRateLimitScheduler(executors.getRateLimitScheduler(), false)
+                .setRateLimitElastic(executors.getRateLimitElastic(), false)
+                .setGatewayPool(executors.getGatewayPool(), false)
+                .setCallbackPool(executors.getCallbackPool(), false)
+                .setEventPool(executors.getEventPool(bot), false)
+                .setEventManager(new RecordingEventManager())
+                .setHttpClient(executors.getHttpClient())
+                .addEventListeners(toolSelection.getListenerBeanNames().stream().map(beanFactory::getBean).toArray())
+                .build();
+        // Wait for the ready state to avoid potential issues
+        jda.awaitReady();
+        return jda;
+    }
+
+    private final class BotConnection {
+        private final String bot;
+        private final String token;
+        private final AtomicBoolean connecting = new AtomicBoolean();
+        /**
+         * Tasks using the bot, or -1 while the idle sweeper disconnects it.
+         */
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile JDA jda;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private BotConnection(String bot, String token) {
+            this.bot = bot;
+            this.token = token;
+        }
+
+        private JDA get() {
+            lastUsed = System.currentTimeMillis();
+            if (jda == null) {
+                synchronized (this) {
+                    if (jda == null) {
+                        try {
+                            jda = build(bot, token);
+                        } catch (Exception e) {
+                            throw new RuntimeException("Failed to initialize Discord JDA: " + e.getMessage(), e);
+                        }
+                        JDA ready = jda;
+                        readyListeners.forEach(listener -> listener.accept(bot, ready));
                     }
+                }
+            }
+            return jda;
+        }
+
+        private void connectInBackground() {
+            if (jda == null && connecting.compareAndSet(false, true)) {
+                Thread.ofVirtual().name("JDA-Connect-" + bot).start(() -> {
+                    enter();
                     try {
-                        jda = JDABuilder.createDefault(token)
-                                .enableIntents(GatewayIntent.GUILD_MEMBERS)
-                                .setAutoReconnect(true)
-                                .build();
-                        // Wait for the ready state to avoid potential issues
-                        jda.awaitReady();
-                    } catch (Exception e) {
-                        throw new RuntimeException("Failed to initialize Discord JDA: " + e.getMessage(), e);
+                        get();
+                    } catch (RuntimeException e) {
+                        log.warn("Background connection of bot {} failed: {}", bot, e.getMessage());
+                    } finally {
+                        exit();
+                        connecting.set(false);
                     }
+                });
+            }
+        }
+
+        private void enter() {
+            int count;
+            // Waits out a disconnect in progress, so no task gets a JDA instance that is being shut down
+            while ((count = inFlight.get()) < 0 || !inFlight.compareAndSet(count, count + 1)) {
+                Thread.onSpinWait();
+            }
+        }
+
+        private void exit() {
+            lastUsed = System.currentTimeMillis();
+            inFlight.decrementAndGet();
+        }
+
+        private void disconnectIfIdle() {
+            if (inFlight.compareAndSet(0, -1)) {
+                try {
+                    disconnect();
+                } finally {
+                    inFlight.set(0);
                 }
             }
         }
-        return jda;
+
+        private synchronized void disconnect() {
+            if (jda != null) {
+                jda.shutdown();
+                jda = null;
+            }
+        }
     }
-}
\ No newline at end of file
+}
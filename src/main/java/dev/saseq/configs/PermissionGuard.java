@@ -0,0 +1,151 @@
+package dev.saseq.configs;
+
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.channel.attribute.IPermissionContainer;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.channel.update.ChannelUpdateParentEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.api.events.guild.override.GenericPermissionOverrideEvent;
+import net.dv8tion.jda.api.events.guild.update.GuildUpdateOwnerEvent;
+import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.api.events.role.update.RoleUpdatePermissionsEvent;
+import net.dv8tion.jda.api.exceptions.InsufficientPermissionException;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.utils.PermissionUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Permission pre-flight for write tools. The bot's effective permissions in a guild or channel are computed from the
+ * cached roles and permission overwrites and kept until a role, overwrite or role assignment of the bot changes, so a
+ * request that Discord would answer with 403 is rejected locally. Every 403 counts towards the invalid request limit
+ * (see {@link InvalidRequestBudget}), after which Discord bans the IP for a while.
+ */
+@Component
+public class PermissionGuard extends ListenerAdapter {
+
+    private final TtlCache<String, Long> effectivePermissions;
+    private final LongAdder rejected = new LongAdder();
+
+    public PermissionGuard(@Value("${discord.mcp.permissions.ttl-seconds:300}") long ttlSeconds,
+                           @Value("${discord.mcp.permissions.max-size:10000}") int maxSize) {
+        this.effectivePermissions = new TtlCache<>("effective permissions", ttlSeconds * 1000, maxSize);
+    }
+
+    /**
+     * Checks that the bot has the permissions server-wide, e.g. before creating channels or roles.
+     *
+     * @throws InsufficientPermissionException If a permission is missing.
+     */
+    public void require(Guild guild, Permission... permissions) {
+        Member self = guild.getSelfMember();
+        long effective = effectivePermissions.get(key(self, "guild"), key -> PermissionUtil.getEffectivePermission(self));
+        for (Permission permission : permissions) {
+            if ((effective & permission.getRawValue()) == 0) {
+                rejected.increment();
+                throw new InsufficientPermissionException(guild, permission);
+            }
+        }
+    }
+
+    /**
+     * Checks that the bot has the permissions in a channel, applying the overwrites of the channel (or of the parent
+     * channel for threads).
+     *
+     * @throws InsufficientPermissionException If a permission is missing.
+     */
+    public void require(GuildChannel channel, Permission... permissions) {
+        Member self = channel.getGuild().getSelfMember();
+        IPermissionContainer container = channel.getPermissionContainer();
+        long effective = effectivePermissions.get(key(self, container.getId()),
+                key -> PermissionUtil.getEffectivePermission(container, self));
+        for (Permission permission : permissions) {
+            if ((effective & permission.getRawValue()) == 0) {
+                rejected.increment();
+                throw new InsufficientPermissionException(channel, permission);
+            }
+        }
+    }
+
+    public TtlCache<String, Long> getCache() {
+        return effectivePermissions;
+    }
+
+    /**
+     * @return The number of requests rejected locally because a permission was missing.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void onRoleUpdatePermissions(RoleUpdatePermissionsEvent event) {
+        invalidate(event.getGuild());
+    }
+
+    @Override
+    public void onRoleDelete(RoleDeleteEvent event) {
+        invalidate(event.getGuild());
+    }
+
+    @Override
+    public void onGuildMemberRoleAdd(GuildMemberRoleAddEvent event) {
+        if (event.getMember().equals(event.getGuild().getSelfMember())) {
+            invalidate(event.getGuild());
+        }
+    }
+
+    @Override
+    public void onGuildMemberRoleRemove(GuildMemberRoleRemoveEvent event) {
+        if (event.getMember().equals(event.getGuild().getSelfMember())) {
+            invalidate(event.getGuild());
+        }
+    }
+
+    @Override
+    public void onGenericPermissionOverride(GenericPermissionOverrideEvent event) {
+        // Overwrites of a category also apply to its synced channels, so the whole guild is recomputed
+        invalidate(event.getGuild());
+    }
+
+    @Override
+    public void onChannelUpdateParent(ChannelUpdateParentEvent event) {
+        invalidate(event.getGuild());
+    }
+
+    @Override
+    public void onChannelDelete(ChannelDeleteEvent event) {
+        if (event.isFromGuild()) {
+            invalidate(event.getGuild());
+        }
+    }
+
+    @Override
+    public void onGuildUpdateOwner(GuildUpdateOwnerEvent event) {
+        invalidate(event.getGuild());
+    }
+
+    @Override
+    public void onGuildLeave(GuildLeaveEvent event) {
+        invalidate(event.getGuild());
+    }
+
+    private void invalidate(Guild guild) {
+        String prefix = guild.getJDA().getSelfUser().getId() + "|" + guild.getId() + "|";
+        effectivePermissions.invalidateIf((key, permissions) -> key.startsWith(prefix));
+    }
+
+    /**
+     * Keys are scoped to the bot user, since events arrive outside any tool invocation.
+     */
+    private static String key(Member self, String scope) {
+        return self.getId() + "|" + self.getGuild().getId() + "|" + scope;
+    }
+}
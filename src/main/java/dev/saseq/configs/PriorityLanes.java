@@ -0,0 +1,98 @@
+package dev.saseq.configs;
+
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Two scheduling lanes for Discord requests: interactive tool calls and background (bulk) job steps.
+ * {@link DiscordToolCallback} counts interactive calls in flight, and bulk work waits for that count to drop to
+ * zero before each step, so jobs sharing a rate-limit bucket with an interactive call never queue ahead of it.
+ */
+@Component
+public class PriorityLanes {
+
+    private static final ThreadLocal<Boolean> BULK = new ThreadLocal<>();
+
+    private final Object monitor = new Object();
+    private int interactiveInFlight;
+
+    /**
+     * Runs a tool invocation in the lane of the current thread: bulk when called from {@link #runBulk}, interactive otherwise.
+     */
+    public <T> T run(Supplier<T> task) {
+        if (Boolean.TRUE.equals(BULK.get())) {
+            return task.get();
+        }
+        enterInteractive();
+        try {
+            return task.get();
+        } finally {
+            exitInteractive();
+        }
+    }
+
+    /**
+     * Releases the interactive slot of the current call while it blocks without making Discord requests
+     * (e.g. long-polling for gateway events). Must be paired with {@link #resumeInteractive()}.
+     */
+    public void pauseInteractive() {
+        if (!Boolean.TRUE.equals(BULK.get())) {
+            exitInteractive();
+        }
+    }
+
+    public void resumeInteractive() {
+        if (!Boolean.TRUE.equals(BULK.get())) {
+            enterInteractive();
+        }
+    }
+
+    /**
+     * Waits until no interactive call is in flight (or the maximum wait elapsed), then runs the task in the bulk lane.
+     *
+     * @param maxWaitMs Upper bound for yielding to interactive calls, so bulk work still progresses under constant load.
+     */
+    public <T> T runBulk(long maxWaitMs, Supplier<T> task) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        synchronized (monitor) {
+            long remaining;
+            while (interactiveInFlight > 0 && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                monitor.wait(remaining);
+            }
+        }
+        BULK.set(Boolean.TRUE);
+        try {
+            return task.get();
+        } finally {
+            BULK.remove();
+        }
+    }
+
+    /**
+     * @return Whether the current thread runs bulk work from {@link #runBulk}.
+     */
+    public boolean isBulk() {
+        return Boolean.TRUE.equals(BULK.get());
+    }
+
+    private void enterInteractive() {
+        synchronized (monitor) {
+            interactiveInFlight++;
+        }
+    }
+
+    private void exitInteractive() {
+        synchronized (monitor) {
+            if (--interactiveInFlight == 0) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    public int getInteractiveInFlight() {
+        synchronized (monitor) {
+            return interactiveInFlight;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package dev.saseq.configs;
+
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.hooks.InterfacedEventManager;
+
+/**
+ * Event manager that emits a {@link GatewayDispatchEvent} per gateway event while a Flight Recorder recording has
+ * the event enabled. The time an event waited in the shared event pool is taken from {@link #runQueued}, which
+ * wraps the tasks of that pool (see {@link SharedJdaExecutors}).
+ */
+public class RecordingEventManager extends InterfacedEventManager {
+
+    private static final ThreadLocal<Long> QUEUED_AT = new ThreadLocal<>();
+
+    /**
+     * Runs an event pool task, exposing when it was queued to the dispatch on this thread.
+     */
+    static void runQueued(long queuedAt, Runnable task) {
+        QUEUED_AT.set(queuedAt);
+        try {
+            task.run();
+        } finally {
+            QUEUED_AT.remove();
+        }
+    }
+
+    @Override
+    public void handle(GenericEvent event) {
+        GatewayDispatchEvent recording = new GatewayDispatchEvent();
+        if (!recording.isEnabled()) {
+            super.handle(event);
+            return;
+        }
+        Long queuedAt = QUEUED_AT.get();
+        long startedAt = System.nanoTime();
+        recording.begin();
+        try {
+            super.handle(event);
+        } finally {
+            recording.end();
+            if (recording.shouldCommit()) {
+                recording.eventType = event.getClass().getSimpleName();
+                recording.queueWait = queuedAt == null ? -1 : startedAt - queuedAt;
+                recording.commit();
+            }
+        }
+    }
+}
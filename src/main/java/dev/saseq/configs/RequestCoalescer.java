@@ -0,0 +1,144 @@
+package dev.saseq.configs;
+
+import net.dv8tion.jda.api.requests.RestAction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight layer for read-only REST calls. Concurrent calls with the same key share one in-flight
+ * {@link RestAction} and receive the same result. With a non-zero result TTL, a finished result is also
+ * reused for a short window, and removed when the window ends.
+ * <p>
+ * Keys are scoped to the bot of the current invocation, since results are bound to its JDA instance.
+ * <p>
+ * Only use this for reads. Write tools must call {@code complete()} directly so that every invocation
+ * reaches Discord.
+ */
+@Component
+public class RequestCoalescer {
+
+    private final long resultTtlMs;
+    private final Map<String, Flight<?>> flights = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder ttlHits = new LongAdder();
+
+    public RequestCoalescer(@Value("${discord.mcp.coalesce.result-ttl-ms:0}") long resultTtlMs) {
+        this.resultTtlMs = Math.max(0, resultTtlMs);
+    }
+
+    /**
+     * Executes the action for the given key, or joins an identical request that is already in flight.
+     *
+     * @param key    Route plus parameters that identify the request, e.g. {@code "messages:<channelId>:<limit>"}.
+     * @param action Supplier of the REST action, only invoked if no shared request is available.
+     * @return The result of the shared request.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T complete(String key, Supplier<? extends RestAction<T>> action) {
+        requests.increment();
+        key = BotContext.current() + "|" + key;
+        long now = System.currentTimeMillis();
+        Flight<T> mine = new Flight<>();
+        Flight<T> flight = (Flight<T>) flights.compute(key, (k, current) ->
+                current != null && current.isUsable(now) ? current : mine);
+
+        if (flight != mine) {
+            if (flight.future.isDone()) {
+                ttlHits.increment();
+            } else {
+                coalesced.increment();
+            }
+            return join(flight.future);
+        }
+
+        try {
+            String flightKey = key;
+            RestRequestEvent.timed(action.get()).submit().whenComplete((result, error) -> {
+                if (error != null || resultTtlMs == 0) {
+                    flights.remove(flightKey, mine);
+                } else {
+                    mine.expiresAt = System.currentTimeMillis() + resultTtlMs;
+                    // Drops the result once it expired, even if its key is never requested again
+                    CompletableFuture.delayedExecutor(resultTtlMs, TimeUnit.MILLISECONDS)
+                            .execute(() -> flights.remove(flightKey, mine));
+                }
+                if (error != null) {
+                    mine.future.completeExceptionally(error);
+                } else {
+                    mine.future.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            flights.remove(key, mine);
+            mine.future.completeExceptionally(e);
+        }
+        return join(mine.future);
+    }
+
+    /**
+     * Drops any shared result for keys starting with the given prefix, e.g. after a write to the same resource.
+     * Applies to all bots, since Discord IDs are global.
+     *
+     * @param keyPrefix The key prefix to invalidate.
+     */
+    public void invalidate(String keyPrefix) {
+        flights.keySet().removeIf(key -> key.startsWith(keyPrefix, key.indexOf('|') + 1));
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getTtlHitCount() {
+        return ttlHits.sum();
+    }
+
+    public long getResultTtlMs() {
+        return resultTtlMs;
+    }
+
+    /**
+     * @return The share of requests that were answered without issuing their own REST call.
+     */
+    public double getDedupRatio() {
+        long total = requests.sum();
+        return total == 0 ? 0.0 : (double) (coalesced.sum() + ttlHits.sum()) / total;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            // Bounded by the caller's deadline, the shared request keeps running for the other callers
+            return CallDeadline.await(future);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Flight<T> {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private boolean isUsable(long now) {
+            if (!future.isDone()) {
+                return true;
+            }
+            return !future.isCompletedExceptionally() && now < expiresAt;
+        }
+    }
+}
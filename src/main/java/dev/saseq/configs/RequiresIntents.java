@@ -0,0 +1,31 @@
+package dev.saseq.configs;
+
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the gateway intents and cache flags a tool service, a single {@code @Tool} method or a standalone
+ * event listener needs beyond {@link GatewayIntent#GUILDS}. {@link ToolSelection} combines them for the enabled
+ * tools and registered listeners, so the gateway only subscribes to what the deployment actually uses.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RequiresIntents {
+
+    GatewayIntent[] value() default {};
+
+    CacheFlag[] cache() default {};
+
+    /**
+     * Whether the tool looks members up in the member cache and therefore needs every member cached.
+     * Tools that only stream members (e.g. through {@code Guild.loadMembers}) need the intent but not the cache.
+     */
+    boolean memberCache() default false;
+}
@@ -0,0 +1,113 @@
+package dev.saseq.configs;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Webhook;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.events.RawGatewayEvent;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.update.GuildUpdateOwnerEvent;
+import net.dv8tion.jda.api.events.session.ShutdownEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Read-through cache for entities that JDA can only fetch over REST (guild owner, channel webhooks, webhooks by ID).
+ * Entries expire after a per-type TTL and are invalidated by the matching gateway events:
+ * owner transfers, {@code WEBHOOKS_UPDATE} dispatches (raw events, enabled together with the webhook tools), channel
+ * deletions and leaving a guild.
+ * Keys are scoped to the bot of the current invocation, since cached entities are bound to its JDA instance.
+ */
+@Component
+public class RestEntityCache extends ListenerAdapter {
+
+    private final RequestCoalescer requestCoalescer;
+    private final TtlCache<String, Member> owners;
+    private final TtlCache<String, List<Webhook>> channelWebhooks;
+    private final TtlCache<String, Webhook> webhooks;
+
+    public RestEntityCache(RequestCoalescer requestCoalescer,
+                           @Value("${discord.mcp.cache.owner.ttl-seconds:600}") long ownerTtlSeconds,
+                           @Value("${discord.mcp.cache.owner.max-size:100}") int ownerMaxSize,
+                           @Value("${discord.mcp.cache.webhooks.ttl-seconds:300}") long webhooksTtlSeconds,
+                           @Value("${discord.mcp.cache.webhooks.max-size:1000}") int webhooksMaxSize) {
+        this.requestCoalescer = requestCoalescer;
+        this.owners = new TtlCache<>("owners", ownerTtlSeconds * 1000, ownerMaxSize);
+        this.channelWebhooks = new TtlCache<>("channel webhooks", webhooksTtlSeconds * 1000, webhooksMaxSize);
+        this.webhooks = new TtlCache<>("webhooks", webhooksTtlSeconds * 1000, webhooksMaxSize);
+    }
+
+    public Member getOwner(Guild guild) {
+        return owners.get(scoped(guild.getId()), key -> requestCoalescer.complete("owner:" + guild.getId(), guild::retrieveOwner));
+    }
+
+    public List<Webhook> getWebhooks(TextChannel channel) {
+        List<Webhook> result = channelWebhooks.get(scoped(channel.getId()),
+                key -> requestCoalescer.complete("webhooks:" + channel.getId(), channel::retrieveWebhooks));
+        result.forEach(webhook -> webhooks.put(scoped(webhook.getId()), webhook));
+        return result;
+    }
+
+    public Webhook getWebhook(JDA jda, String webhookId) {
+        return webhooks.get(scoped(webhookId), key -> requestCoalescer.complete("webhook:" + webhookId, () -> jda.retrieveWebhookById(webhookId)));
+    }
+
+    /**
+     * Drops all cached webhooks of a channel, e.g. after creating or deleting one of them.
+     *
+     * @param channelId The ID of the channel.
+     */
+    public void invalidateWebhooks(String channelId) {
+        channelWebhooks.invalidateIf((key, list) -> key.endsWith("|" + channelId));
+        webhooks.invalidateIf((id, webhook) -> channelId.equals(webhook.getChannel().getId()));
+        requestCoalescer.invalidate("webhooks:" + channelId);
+    }
+
+    public List<TtlCache<?, ?>> getCaches() {
+        return List.of(owners, channelWebhooks, webhooks);
+    }
+
+    @Override
+    public void onGuildUpdateOwner(GuildUpdateOwnerEvent event) {
+        String guildId = event.getGuild().getId();
+        owners.invalidateIf((key, owner) -> key.endsWith("|" + guildId));
+        requestCoalescer.invalidate("owner:" + guildId);
+    }
+
+    @Override
+    public void onRawGateway(RawGatewayEvent event) {
+        if ("WEBHOOKS_UPDATE".equals(event.getType())) {
+            invalidateWebhooks(event.getPayload().getString("channel_id"));
+        }
+    }
+
+    @Override
+    public void onChannelDelete(ChannelDeleteEvent event) {
+        invalidateWebhooks(event.getChannel().getId());
+    }
+
+    @Override
+    public void onGuildLeave(GuildLeaveEvent event) {
+        String guildId = event.getGuild().getId();
+        owners.invalidateIf((key, owner) -> key.endsWith("|" + guildId));
+        channelWebhooks.invalidateIf((id, list) -> list.stream().anyMatch(w -> guildId.equals(w.getGuild().getId())));
+        webhooks.invalidateIf((id, webhook) -> guildId.equals(webhook.getGuild().getId()));
+    }
+
+    @Override
+    public void onShutdown(ShutdownEvent event) {
+        JDA jda = event.getJDA();
+        owners.invalidateIf((key, owner) -> owner.getJDA() == jda);
+        channelWebhooks.invalidateIf((key, list) -> list.stream().anyMatch(w -> w.getJDA() == jda));
+        webhooks.invalidateIf((key, webhook) -> webhook.getJDA() == jda);
+    }
+
+    private static String scoped(String id) {
+        return BotContext.current() + "|" + id;
+    }
+}
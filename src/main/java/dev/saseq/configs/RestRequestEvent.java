@@ -0,0 +1,63 @@
+package dev.saseq.configs;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import net.dv8tion.jda.api.requests.RestAction;
+
+/**
+ * Flight Recorder event for one Discord REST request, emitted by {@link RestRequestRecorder}. The event duration is
+ * the HTTP exchange; the time the request spent queued in JDA's rate limiter before it is recorded separately.
+ */
+@Name("dev.saseq.RestRequest")
+@Label("Discord REST Request")
+@Category({"Discord MCP", "REST"})
+@Description("A Discord REST request executed by JDA")
+@StackTrace(false)
+public class RestRequestEvent extends jdk.jfr.Event {
+
+    private static final ThreadLocal<Long> QUEUE_WAIT = new ThreadLocal<>();
+
+    @Label("Method")
+    String method;
+
+    @Label("Route")
+    @Description("Path with IDs other than the major parameter replaced, e.g. /channels/123/messages/{id}")
+    String route;
+
+    @Label("Bucket")
+    @Description("Rate-limit bucket reported by Discord")
+    String bucket;
+
+    @Label("Status")
+    int status;
+
+    @Label("Queue Wait")
+    @Description("Time between submitting the request and JDA sending it, -1 if unknown")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueWait = -1;
+
+    /**
+     * Adds a check that JDA runs on its requester thread right before it sends the request, so the time the request
+     * spent waiting for its rate-limit bucket can be attached to the event of the HTTP exchange on that thread.
+     */
+    public static <T> RestAction<T> timed(RestAction<T> action) {
+        long submittedAt = System.nanoTime();
+        return action.addCheck(() -> {
+            QUEUE_WAIT.set(System.nanoTime() - submittedAt);
+            return true;
+        });
+    }
+
+    /**
+     * @return The queue wait of the request about to be sent on this thread, or -1 if it was not {@link #timed}.
+     */
+    static long takeQueueWait() {
+        Long wait = QUEUE_WAIT.get();
+        QUEUE_WAIT.remove();
+        return wait == null ? -1 : wait;
+    }
+}
@@ -0,0 +1,83 @@
+package dev.saseq.configs;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Emits a {@link RestRequestEvent} for every Discord API request of the shared HTTP client while a Flight Recorder
+ * recording has the event enabled, and keeps the round-trip times of recent requests for {@code get_diagnostics}.
+ */
+@Component
+public class RestRequestRecorder implements Interceptor {
+
+    private static final Pattern API_VERSION = Pattern.compile("^/api/v\\d+");
+    private static final Pattern SNOWFLAKE_SEGMENT = Pattern.compile("/\\d{15,21}");
+    private static final Pattern WEBHOOK_TOKEN = Pattern.compile("(/webhooks/[^/]+)/[^/]+");
+
+    private final LatencyHistory roundTrips;
+
+    /**
+     * @param historySize Round-trip times retained for percentiles.
+     */
+    public RestRequestRecorder(@Value("${discord.mcp.diagnostics.history-size:360}") int historySize) {
+        this.roundTrips = new LatencyHistory(historySize);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        long queueWait = RestRequestEvent.takeQueueWait();
+        if (!request.url().encodedPath().startsWith("/api/")) {
+            return chain.proceed(request);
+        }
+        RestRequestEvent event = new RestRequestEvent();
+        event.begin();
+        long startedAt = System.nanoTime();
+        Response response = null;
+        try {
+            response = chain.proceed(request);
+            return response;
+        } finally {
+            if (response != null) {
+                roundTrips.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = request.method();
+                event.route = route(request.url().encodedPath());
+                event.status = response == null ? -1 : response.code();
+                event.bucket = response == null ? null : response.header("X-RateLimit-Bucket");
+                event.queueWait = queueWait;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * @return Round-trip times in milliseconds of recent Discord API requests, including the invalid request budget's delay.
+     */
+    public LatencyHistory getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * Keeps the first ID of the path (the major parameter that rate limits are scoped to) and replaces the others,
+     * so requests to the same route aggregate in a recording.
+     */
+    static String route(String path) {
+        String route = WEBHOOK_TOKEN.matcher(API_VERSION.matcher(path).replaceFirst("")).replaceFirst("$1/{token}");
+        Matcher major = SNOWFLAKE_SEGMENT.matcher(route);
+        if (!major.find()) {
+            return route;
+        }
+        return route.substring(0, major.end()) + SNOWFLAKE_SEGMENT.matcher(route.substring(major.end())).replaceAll("/{id}");
+    }
+}
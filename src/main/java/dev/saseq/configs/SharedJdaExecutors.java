@@ -0,0 +1,158 @@
+package dev.saseq.configs;
+
+import jakarta.annotation.PreDestroy;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pools and HTTP client shared by every JDA instance of this process, so that additional bots
+ * don't each bring their own rate-limit, callback, gateway and event threads.
+ * <p>
+ * Callbacks run on virtual threads. Events are dispatched by one virtual thread from a bounded queue, so listeners
+ * see them in gateway order (e.g. a message update never before its create); more event threads trade that order
+ * for throughput. When the queue is full the gateway thread waits for room, which slows down reading from the
+ * socket instead of growing the heap. Every bot has its own event pool, so this back-pressure only slows down the
+ * connection of the bot that is behind. The scheduled pools only do timer work and are kept small.
+ * The HTTP client keeps all bots within the IP-wide {@link InvalidRequestBudget invalid request limit} and
+ * records every request for Flight Recorder ({@link RestRequestRecorder}).
+ */
+@Component
+public class SharedJdaExecutors {
+
+    private final ScheduledExecutorService rateLimitScheduler;
+    private final ExecutorService rateLimitElastic;
+    private final ScheduledExecutorService gatewayPool;
+    private final ExecutorService callbackPool;
+    private final Map<String, ThreadPoolExecutor> eventPools = new ConcurrentHashMap<>();
+    private final int eventThreads;
+    private final int eventQueueCapacity;
+    private final OkHttpClient httpClient;
+
+    public SharedJdaExecutors(InvalidRequestBudget invalidRequestBudget,
+                              RestRequestRecorder restRequestRecorder,
+                              @Value("${discord.mcp.jda.rate-limit-threads:1}") int rateLimitThreads,
+                              @Value("${discord.mcp.jda.gateway-threads:1}") int gatewayThreads,
+                              @Value("${discord.mcp.jda.event-threads:1}") int eventThreads,
+                              @Value("${discord.mcp.jda.event-queue-capacity:1000}") int eventQueueCapacity) {
+        this.rateLimitScheduler = scheduledPool(rateLimitThreads, "JDA-RateLimit-Scheduler");
+        // Blocking HTTP calls of the requester; OkHttp synchronizes internally, so these stay platform threads
+        this.rateLimitElastic = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), daemonThreads("JDA-RateLimit-Elastic"));
+        this.gatewayPool = scheduledPool(gatewayThreads, "JDA-Gateway");
+        this.callbackPool = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("JDA-Callback-", 1).factory());
+        this.eventThreads = Math.max(1, eventThreads);
+        this.eventQueueCapacity = eventQueueCapacity;
+        this.httpClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(5, 10, TimeUnit.SECONDS))
+                // Recorded first, so requests delayed or refused by the budget show up in recordings as well
+                .addInterceptor(restRequestRecorder)
+                .addInterceptor(invalidRequestBudget)
+                .build();
+    }
+
+    public ScheduledExecutorService getRateLimitScheduler() {
+        return rateLimitScheduler;
+    }
+
+    public ExecutorService getRateLimitElastic() {
+        return rateLimitElastic;
+    }
+
+    public ScheduledExecutorService getGatewayPool() {
+        return gatewayPool;
+    }
+
+    public ExecutorService getCallbackPool() {
+        return callbackPool;
+    }
+
+    /**
+     * @return The event pool of the given bot, kept across reconnects.
+     */
+    public ExecutorService getEventPool(String bot) {
+        return eventPools.computeIfAbsent(bot, this::eventPool);
+    }
+
+    /**
+     * @return The number of gateway events waiting to be dispatched, over all bots.
+     */
+    public int getEventQueueDepth() {
+        return eventPools.values().stream().mapToInt(pool -> pool.getQueue().size()).sum();
+    }
+
+    public OkHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rateLimitScheduler.shutdown();
+        rateLimitElastic.shutdown();
+        gatewayPool.shutdown();
+        callbackPool.shutdown();
+        eventPools.values().forEach(ThreadPoolExecutor::shutdown);
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+
+    private ThreadPoolExecutor eventPool(String bot) {
+        return new ThreadPoolExecutor(eventThreads, eventThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(eventQueueCapacity),
+                Thread.ofVirtual().name("JDA-Event-" + bot + "-", 1).factory(),
+                SharedJdaExecutors::awaitQueueRoom) {
+            @Override
+            public void execute(Runnable command) {
+                // Lets the RecordingEventManager report how long the event waited in the queue
+                long queuedAt = System.nanoTime();
+                super.execute(() -> RecordingEventManager.runQueued(queuedAt, command));
+            }
+        };
+    }
+
+    /**
+     * Blocks the gateway thread until the event fits into the queue. Unlike running it on the caller, this keeps
+     * the event behind the ones already queued.
+     */
+    private static void awaitQueueRoom(Runnable event, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) {
+            throw new RejectedExecutionException("Event pool is shut down");
+        }
+        try {
+            pool.getQueue().put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room in the event queue", e);
+        }
+    }
+
+    private static ScheduledExecutorService scheduledPool(int threads, String prefix) {
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(Math.max(1, threads), daemonThreads(prefix));
+        pool.setRemoveOnCancelPolicy(true);
+        return pool;
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + " " + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package dev.saseq.configs;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one MCP tool invocation, emitted by {@link DiscordToolCallback}. The event duration is
+ * the wall-clock time of the call, including waits for rate limits and the write queue of the channel.
+ */
+@Name("dev.saseq.ToolCall")
+@Label("Tool Call")
+@Category({"Discord MCP", "Tools"})
+@Description("An MCP tool invocation")
+@StackTrace(false)
+public class ToolCallEvent extends jdk.jfr.Event {
+
+    @Label("Tool")
+    String tool;
+
+    @Label("Bot")
+    String bot;
+
+    @Label("Lane")
+    @Description("interactive, or bulk for background job steps")
+    String lane;
+
+    @Label("Outcome")
+    @Description("ok, error or deadline_exceeded")
+    String outcome;
+
+    @Label("Argument Size")
+    @DataAmount
+    long argumentSize;
+
+    @Label("Result Size")
+    @DataAmount
+    long resultSize;
+}
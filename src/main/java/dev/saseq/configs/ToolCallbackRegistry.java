@@ -0,0 +1,45 @@
+package dev.saseq.configs;
+
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Looks up the registered Discord tool callbacks by name, for tools that invoke other tools (batches, jobs).
+ * The callbacks are resolved on first use because the provider is built from the tool services themselves.
+ */
+@Component
+public class ToolCallbackRegistry {
+
+    private final ApplicationContext applicationContext;
+    private volatile Map<String, ToolCallback> toolCallbacks;
+
+    public ToolCallbackRegistry(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+     * @param tool The tool name.
+     * @return The tool callback, including bot routing and lane accounting.
+     * @throws IllegalArgumentException If the tool does not exist or is disabled.
+     */
+    public ToolCallback get(String tool) {
+        Map<String, ToolCallback> callbacks = toolCallbacks;
+        if (callbacks == null) {
+            callbacks = new HashMap<>();
+            for (ToolCallback callback : applicationContext.getBean("discordTools", ToolCallbackProvider.class).getToolCallbacks()) {
+                callbacks.put(callback.getToolDefinition().name(), callback);
+            }
+            toolCallbacks = callbacks;
+        }
+        ToolCallback callback = callbacks.get(tool);
+        if (callback == null) {
+            throw new IllegalArgumentException("Unknown or disabled tool: " + tool);
+        }
+        return callback;
+    }
+}
@@ -0,0 +1,169 @@
+package dev.saseq.configs;
+
+import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resolves which tools are enabled from the {@code discord.mcp.tools.enabled} allow-list and the
+ * {@code discord.mcp.tools.disabled} deny-list, using only bean types so that services without enabled
+ * tools are never instantiated. From the enabled tools it derives the minimal gateway intents and cache flags
+ * declared with {@link RequiresIntents}, together with those of standalone listeners such as resource publishers.
+ * <p>
+ * List entries are tool names; a trailing {@code *} matches by prefix (e.g. {@code webhook*}, {@code *}).
+ * <p>
+ * The privileged {@link GatewayIntent#MESSAGE_CONTENT} intent is never derived from the tools, since a bot without it
+ * enabled in the developer portal cannot log in. It is only added with {@code discord.mcp.wait.message-content=true}.
+ */
+@Component
+public class ToolSelection {
+
+    private static final Logger log = LoggerFactory.getLogger(ToolSelection.class);
+
+    private final List<String> enabledPatterns;
+    private final List<String> disabledPatterns;
+    private final Set<String> enabledTools = new LinkedHashSet<>();
+    private final Set<String> serviceBeanNames = new LinkedHashSet<>();
+    private final Set<String> listenerBeanNames = new LinkedHashSet<>();
+    private final EnumSet<GatewayIntent> gatewayIntents = EnumSet.of(GatewayIntent.GUILDS);
+    private final EnumSet<CacheFlag> cacheFlags = EnumSet.noneOf(CacheFlag.class);
+    private boolean memberCache;
+
+    public ToolSelection(ConfigurableListableBeanFactory beanFactory,
+                         @Value("${discord.mcp.tools.enabled:*}") String enabled,
+                         @Value("${discord.mcp.tools.disabled:}") String disabled,
+                         @Value("${discord.mcp.wait.message-content:false}") boolean messageContent) {
+        this.enabledPatterns = parse(enabled);
+        this.disabledPatterns = parse(disabled);
+
+        for (String beanName : beanFactory.getBeanNamesForAnnotation(Service.class)) {
+            Class<?> type = beanFactory.getType(beanName, false);
+            if (type == null) {
+                continue;
+            }
+            type = ClassUtils.getUserClass(type);
+            boolean serviceEnabled = false;
+            for (Method method : type.getMethods()) {
+                Tool tool = method.getAnnotation(Tool.class);
+                if (tool == null) {
+                    continue;
+                }
+                String toolName = tool.name().isEmpty() ? method.getName() : tool.name();
+                if (isSelected(toolName)) {
+                    enabledTools.add(toolName);
+                    serviceEnabled = true;
+                    require(method.getAnnotation(RequiresIntents.class));
+                }
+            }
+            if (serviceEnabled) {
+                serviceBeanNames.add(beanName);
+                require(type.getAnnotation(RequiresIntents.class));
+            }
+        }
+
+        Set<String> toolServices = Set.of(beanFactory.getBeanNamesForAnnotation(Service.class));
+        for (String beanName : beanFactory.getBeanNamesForType(EventListener.class, true, false)) {
+            // Listeners that are also tool services only run if one of their tools is enabled
+            if (!toolServices.contains(beanName) || serviceBeanNames.contains(beanName)) {
+                listenerBeanNames.add(beanName);
+            }
+            if (!toolServices.contains(beanName)) {
+                Class<?> type = beanFactory.getType(beanName, false);
+                if (type != null) {
+                    require(ClassUtils.getUserClass(type).getAnnotation(RequiresIntents.class));
+                }
+            }
+        }
+
+        if (messageContent && gatewayIntents.contains(GatewayIntent.GUILD_MESSAGES)) {
+            gatewayIntents.add(GatewayIntent.MESSAGE_CONTENT);
+        }
+
+        log.info("Enabled {} tools from {} services", enabledTools.size(), serviceBeanNames.size());
+        log.info("Gateway intents: {}", gatewayIntents);
+        log.info("Cache flags: {}, member cache: {}", cacheFlags.isEmpty() ? "none" : cacheFlags, memberCache ? "all" : "owner");
+    }
+
+    public boolean isEnabled(String toolName) {
+        return enabledTools.contains(toolName);
+    }
+
+    public Set<String> getEnabledTools() {
+        return Collections.unmodifiableSet(enabledTools);
+    }
+
+    /**
+     * @return Bean names of the tool services that have at least one enabled tool.
+     */
+    public Set<String> getServiceBeanNames() {
+        return Collections.unmodifiableSet(serviceBeanNames);
+    }
+
+    /**
+     * @return Bean names of the JDA event listeners to register, excluding listeners of disabled services.
+     */
+    public Set<String> getListenerBeanNames() {
+        return Collections.unmodifiableSet(listenerBeanNames);
+    }
+
+    public Set<GatewayIntent> getGatewayIntents() {
+        return Collections.unmodifiableSet(gatewayIntents);
+    }
+
+    public Set<CacheFlag> getCacheFlags() {
+        return Collections.unmodifiableSet(cacheFlags);
+    }
+
+    /**
+     * @return Whether an enabled tool needs all members cached, see {@link RequiresIntents#memberCache()}.
+     */
+    public boolean isMemberCacheRequired() {
+        return memberCache;
+    }
+
+    private void require(RequiresIntents requirement) {
+        if (requirement != null) {
+            gatewayIntents.addAll(Arrays.asList(requirement.value()));
+            cacheFlags.addAll(Arrays.asList(requirement.cache()));
+            memberCache |= requirement.memberCache();
+        }
+    }
+
+    private boolean isSelected(String toolName) {
+        return matches(enabledPatterns, toolName) && !matches(disabledPatterns, toolName);
+    }
+
+    private static boolean matches(List<String> patterns, String toolName) {
+        for (String pattern : patterns) {
+            if (pattern.endsWith("*")
+                    ? toolName.startsWith(pattern.substring(0, pattern.length() - 1))
+                    : toolName.equals(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> parse(String patterns) {
+        return Arrays.stream(patterns.split(","))
+                .map(String::trim)
+                .filter(pattern -> !pattern.isEmpty())
+                .toList();
+    }
+}
@@ -0,0 +1,83 @@
+package dev.saseq.configs;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.IncomingWebhookClient;
+import net.dv8tion.jda.api.entities.Webhook;
+import net.dv8tion.jda.api.entities.WebhookClient;
+import net.dv8tion.jda.api.events.session.ShutdownEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+
+/**
+ * Keeps one {@link IncomingWebhookClient} per bot and webhook ID so repeated sends reuse the same client
+ * instead of parsing the URL and building a new one every time.
+ */
+@Component
+public class WebhookClientPool extends ListenerAdapter {
+
+    private final LazyJDAProvider jdaProvider;
+    private final Map<String, PooledClient> clients = new ConcurrentHashMap<>();
+
+    public WebhookClientPool(LazyJDAProvider jdaProvider) {
+        this.jdaProvider = jdaProvider;
+    }
+
+    /**
+     * Returns the pooled client for a webhook URL, creating it on first use.
+     * A client is replaced if the URL carries a different token for the same webhook ID.
+     *
+     * @param webhookUrl The full Discord webhook URL.
+     * @return The pooled client for the webhook.
+     */
+    public IncomingWebhookClient getClient(String webhookUrl) {
+        Matcher matcher = Webhook.WEBHOOK_URL.matcher(webhookUrl);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid webhook URL");
+        }
+        String webhookId = matcher.group("id");
+        String webhookToken = matcher.group("token");
+        JDA jda = jdaProvider.getJDA();
+        return clients.compute(BotContext.current() + "|" + webhookId, (key, pooled) -> {
+            if (pooled != null && pooled.jda() == jda && pooled.token().equals(webhookToken)) {
+                return pooled;
+            }
+            return new PooledClient(jda, webhookToken, WebhookClient.createClient(jda, webhookId, webhookToken));
+        }).client();
+    }
+
+    /**
+     * Extracts the webhook ID from a webhook URL without creating a client.
+     *
+     * @param webhookUrl The full Discord webhook URL.
+     * @return The webhook ID, or null if the URL is not a webhook URL.
+     */
+    public String getWebhookId(String webhookUrl) {
+        Matcher matcher = Webhook.WEBHOOK_URL.matcher(webhookUrl);
+        return matcher.matches() ? matcher.group("id") : null;
+    }
+
+    /**
+     * Drops the pooled client for a webhook, e.g. after it was deleted.
+     *
+     * @param webhookId The ID of the webhook.
+     */
+    public void evict(String webhookId) {
+        clients.keySet().removeIf(key -> key.endsWith("|" + webhookId));
+    }
+
+    public int size() {
+        return clients.size();
+    }
+
+    @Override
+    public void onShutdown(ShutdownEvent event) {
+        clients.values().removeIf(pooled -> pooled.jda() == event.getJDA());
+    }
+
+    private record PooledClient(JDA jda, String token, IncomingWebhookClient client) {
+    }
+}
@@ -0,0 +1,264 @@
+package dev.saseq.services;
+
+import dev.saseq.configs.AttachmentCache;
+import dev.saseq.configs.CallDeadline;
+import dev.saseq.configs.ChannelWriteScheduler;
+import dev.saseq.configs.DeadlineExceededException;
+import dev.saseq.configs.LazyJDAProvider;
+import dev.saseq.configs.RequestCoalescer;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import net.dv8tion.jda.api.utils.FileUpload;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Attachment upload and download. Files are streamed between disk and the network: uploads hand JDA a file-backed
+ * {@link FileUpload} and downloads go through the {@link AttachmentCache}, which copies the CDN stream into a file
+ * channel, so the heap only ever holds small transfer buffers regardless of the file size. All paths are resolved
+ * inside the attachment directory.
+ */
+@Service
+public class AttachmentService {
+
+    private static final int MAX_FILES_PER_MESSAGE = 10;
+
+    private final LazyJDAProvider jdaProvider;
+    private final RequestCoalescer requestCoalescer;
+    private final AttachmentCache attachmentCache;
+    private final ChannelWriteScheduler writeScheduler;
+    private final Path directory;
+    private final long maxDownloadBytes;
+    private final Semaphore downloadPermits;
+
+    /**
+     * @param directory           Root directory for uploaded and downloaded files.
+     * @param maxDownloadMb       Largest attachment that is downloaded, in megabytes.
+     * @param downloadConcurrency Attachments downloaded in parallel across all tool calls.
+     */
+    public AttachmentService(LazyJDAProvider jdaProvider,
+                             RequestCoalescer requestCoalescer,
+                             AttachmentCache attachmentCache,
+                             ChannelWriteScheduler writeScheduler,
+                             @Value("${discord.mcp.attachments.directory:./attachments}") String directory,
+                             @Value("${discord.mcp.attachments.max-download-mb:500}") long maxDownloadMb,
+                             @Value("${discord.mcp.attachments.download-concurrency:4}") int downloadConcurrency) {
+        this.jdaProvider = jdaProvider;
+        this.requestCoalescer = requestCoalescer;
+        this.attachmentCache = attachmentCache;
+        this.writeScheduler = writeScheduler;
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        this.maxDownloadBytes = maxDownloadMb * 1024 * 1024;
+        this.downloadPermits = new Semaphore(Math.max(1, downloadConcurrency));
+    }
+
+    /**
+     * Sends a message with files from the attachment directory to a specified Discord channel.
+     *
+     * @param channelId The ID of the channel or thread where the message will be sent.
+     * @param filePaths Comma-separated file paths, relative to the attachment directory.
+     * @param message   Optional text content of the message.
+     * @return A confirmation message with a link to the sent message.
+     */
+    @Tool(name = "send_message_with_files", description = "Send a message with file attachments from the attachment directory to a specific channel")
+    public String sendMessageWithFiles(@ToolParam(description = "Discord channel or thread ID") String channelId,
+                                       @ToolParam(description = "Comma-separated file paths relative to the attachment directory") String filePaths,
+                                       @ToolParam(description = "Message content", required = false) String message) {
+        if (channelId == null || channelId.isEmpty()) {
+            throw new IllegalArgumentException("channelId cannot be null");
+        }
+        if (filePaths == null || filePaths.isEmpty()) {
+            throw new IllegalArgumentException("filePaths cannot be null");
+        }
+        List<Path> files = Arrays.stream(filePaths.split(","))
+                .map(String::trim)
+                .filter(path -> !path.isEmpty())
+                .map(this::resolve)
+                .toList();
+        if (files.isEmpty() || files.size() > MAX_FILES_PER_MESSAGE) {
+            throw new IllegalArgumentException("filePaths must contain between 1 and " + MAX_FILES_PER_MESSAGE + " files");
+        }
+
+        GuildMessageChannel channel = jdaProvider.getJDA().getChannelById(GuildMessageChannel.class, channelId);
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel not found by channelId");
+        }
+        long maxUploadBytes = channel.getGuild().getMaxFileSize();
+        List<FileUpload> uploads = new ArrayList<>(files.size());
+        for (Path file : files) {
+            if (!Files.isRegularFile(file) || !Files.isReadable(file)) {
+                throw new IllegalArgumentException("File not found or not readable: " + directory.relativize(file));
+            }
+            if (size(file) > maxUploadBytes) {
+                throw new IllegalArgumentException("File " + file.getFileName() + " exceeds the upload limit of " + maxUploadBytes / (1024 * 1024) + " MB");
+            }
+            // File-backed uploads are opened and streamed by the HTTP client when the request is sent
+            uploads.add(FileUpload.fromData(file.toFile(), file.getFileName().toString()));
+        }
+        Message sentMessage = writeScheduler.submit(channelId, () -> CallDeadline.complete(message == null || message.isEmpty()
+                ? channel.sendFiles(uploads)
+                : channel.sendMessage(message).addFiles(uploads)));
+        requestCoalescer.invalidate("messages:" + channelId + ":");
+        return "Message with " + uploads.size() + " files sent successfully (ID: " + sentMessage.getId() + "). Message link: " + sentMessage.getJumpUrl();
+    }
+
+    /**
+     * Downloads the attachments of a message into the attachment directory.
+     *
+     * @param channelId  The ID of the channel or thread containing the message.
+     * @param messageId  The ID of the message.
+     * @param targetPath Optional subdirectory of the attachment directory (default is the message ID).
+     * @return One line per attachment with its local path, or the reason it was skipped.
+     */
+    @Tool(name = "download_attachments", description = "Download the attachments of a message into the attachment directory")
+    public String downloadAttachments(@ToolParam(description = "Discord channel or thread ID") String channelId,
+                                      @ToolParam(description = "Discord message ID") String messageId,
+                                      @ToolParam(description = "Subdirectory of the attachment directory (default: message ID)", required = false) String targetPath) {
+        if (channelId == null || channelId.isEmpty()) {
+            throw new IllegalArgumentException("channelId cannot be null");
+        }
+        if (messageId == null || messageId.isEmpty()) {
+            throw new IllegalArgumentException("messageId cannot be null");
+        }
+
+        GuildMessageChannel channel = jdaProvider.getJDA().getChannelById(GuildMessageChannel.class, channelId);
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel not found by channelId");
+        }
+        Message message = CallDeadline.complete(channel.retrieveMessageById(messageId));
+        if (message == null) {
+            throw new IllegalArgumentException("Message not found by messageId");
+        }
+        List<Message.Attachment> attachments = message.getAttachments();
+        if (attachments.isEmpty()) {
+            return "Message has no attachments";
+        }
+        Path target = resolve(targetPath == null || targetPath.isEmpty() ? messageId : targetPath);
+        try {
+            Files.createDirectories(target);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create directory " + directory.relativize(target), e);
+        }
+
+        List<String> results = new ArrayList<>(attachments.size());
+        long deadline = CallDeadline.current();
+        try (ExecutorService downloads = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> futures = new ArrayList<>(attachments.size());
+            for (Message.Attachment attachment : attachments) {
+                futures.add(downloads.submit(() -> CallDeadline.callWithin(deadline, () -> download(attachment, target))));
+            }
+            try {
+                for (int i = 0; i < futures.size(); i++) {
+                    String fileName = attachments.get(i).getFileName();
+                    try {
+                        results.add("- " + fileName + ": " + futures.get(i).get(Math.max(0, CallDeadline.remainingMillis()), TimeUnit.MILLISECONDS));
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof DeadlineExceededException deadlineExceeded) {
+                            throw deadlineExceeded;
+                        }
+                        results.add("- " + fileName + ": failed (" + e.getCause().getMessage() + ")");
+                    }
+                }
+            } catch (TimeoutException e) {
+                throw new DeadlineExceededException(deadline);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Download interrupted", e);
+            } finally {
+                // Interrupts downloads still running after a timeout, so closing the executor does not wait for them
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+        return "**Downloaded attachments of message " + messageId + ":**\n" + String.join("\n", results);
+    }
+
+    /**
+     * Downloads one attachment within the deadline of the current invocation.
+     */
+    private String download(Message.Attachment attachment, Path target) {
+        if (attachment.getSize() > maxDownloadBytes) {
+            return "skipped, " + attachment.getSize() + " bytes exceeds the download limit of " + maxDownloadBytes + " bytes";
+        }
+        Path file = target.resolve(attachment.getId() + "_" + sanitize(attachment.getFileName()));
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        acquireDownloadPermit();
+        try {
+            try {
+                if (attachmentCache.accepts(attachment.getSize())) {
+                    attachmentCache.copyTo(attachment, maxDownloadBytes, partial);
+                } else {
+                    try (InputStream in = CallDeadline.awaitOrCancel(attachment.getProxy().download())) {
+                        AttachmentCache.transfer(in, partial, maxDownloadBytes);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(partial);
+                throw e;
+            } finally {
+                downloadPermits.release();
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        }
+        return directory.relativize(file) + " (" + attachment.getSize() + " bytes)";
+    }
+
+    private void acquireDownloadPermit() {
+        long deadline = CallDeadline.current();
+        try {
+            if (deadline == CallDeadline.NONE) {
+                downloadPermits.acquire();
+            } else if (!downloadPermits.tryAcquire(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                throw new DeadlineExceededException(deadline);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Download interrupted", e);
+        }
+    }
+
+    private Path resolve(String path) {
+        Path resolved = directory.resolve(path).normalize();
+        if (!resolved.startsWith(directory)) {
+            throw new IllegalArgumentException("Path must be inside the attachment directory: " + path);
+        }
+        return resolved;
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read size of " + file.getFileName(), e);
+        }
+    }
+
+    private static String sanitize(String fileName) {
+        StringBuilder safe = new StringBuilder(fileName.length());
+        for (int i = 0; i < fileName.length(); i++) {
+            char c = fileName.charAt(i);
+            safe.append(Character.isLetterOrDigit(c) || c == '.' || c == '-' || c == '_' ? c : '_');
+        }
+        return safe.toString();
+    }
+}
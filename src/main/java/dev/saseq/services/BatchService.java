@@ -0,0 +1,274 @@
+package dev.saseq.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import dev.saseq.configs.BotContext;
+import dev.saseq.configs.CallDeadline;
+import dev.saseq.configs.ToolCallbackRegistry;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs several tool calls in one invocation. Steps form a DAG through explicit {@code dependsOn} lists and
+ * {@code {{stepId}}} references in their arguments; each step starts as soon as its dependencies succeeded,
+ * so independent steps run in parallel up to the concurrency limit.
+ */
+@Service
+public class BatchService {
+
+    private static final String TOOL_NAME = "execute_batch";
+    private static final Pattern REFERENCE = Pattern.compile("\\{\\{([A-Za-z0-9_-]+)(\\.id)?}}");
+    /**
+     * Tools that create an entity report it as {@code (ID: 123...)}; the first such ID is the created one.
+     */
+    private static final Pattern CREATED_ID = Pattern.compile("\\(ID: (\\d{17,20})\\)");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ToolCallbackRegistry toolCallbackRegistry;
+    private final int maxSteps;
+    private final int defaultConcurrency;
+
+    public BatchService(ToolCallbackRegistry toolCallbackRegistry,
+                        @Value("${discord.mcp.batch.max-steps:100}") int maxSteps,
+                        @Value("${discord.mcp.batch.concurrency:4}") int defaultConcurrency) {
+        this.toolCallbackRegistry = toolCallbackRegistry;
+        this.maxSteps = maxSteps;
+        this.defaultConcurrency = defaultConcurrency;
+    }
+
+    /**
+     * Executes a batch of tool calls.
+     *
+     * @param steps       JSON array of steps: {@code [{"id": "cat", "tool": "create_category", "args": {...}, "dependsOn": ["..."]}]}.
+     *                    String arguments may contain {@code {{stepId}}} for the result text of an earlier step or
+     *                    {@code {{stepId.id}}} for the ID of the entity it created (the first {@code (ID: ...)} in it).
+     * @param concurrency Optional number of steps running at once (default is 4).
+     * @return A JSON array with the status and result or error of every step, in input order.
+     */
+    @Tool(name = TOOL_NAME, description = "Execute several tool calls in one round trip. Steps run in parallel unless they depend on each other; " +
+            "string arguments can reference earlier results with {{stepId}} (full result) or {{stepId.id}} (ID of the entity the step created)")
+    public String executeBatch(@ToolParam(description = "JSON array of steps: [{\"id\": \"cat\", \"tool\": \"create_category\", \"args\": {\"name\": \"Ops\"}}, " +
+                                       "{\"id\": \"chan\", \"tool\": \"create_text_channel\", \"args\": {\"name\": \"alerts\", \"categoryId\": \"{{cat.id}}\"}}]") String steps,
+                               @ToolParam(description = "Number of steps running at once (default 4)", required = false) String concurrency) {
+        if (steps == null || steps.isEmpty()) {
+            throw new IllegalArgumentException("steps cannot be null");
+        }
+        int parallelism = concurrency == null || concurrency.isEmpty() ? defaultConcurrency : Integer.parseInt(concurrency);
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        Map<String, Step> plan = parse(steps);
+        sortTopologically(plan);
+
+        String bot = BotContext.current();
+        long deadline = CallDeadline.current();
+        Semaphore permits = new Semaphore(parallelism);
+        Map<String, CompletableFuture<String>> results = new ConcurrentHashMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // Steps are in dependency order after sorting, so every dependency future exists already
+            for (Step step : plan.values()) {
+                CompletableFuture<?>[] dependencies = step.dependsOn.stream().map(results::get).toArray(CompletableFuture[]::new);
+                results.put(step.id, CompletableFuture.allOf(dependencies)
+                        .handle((ignored, failure) -> failure)
+                        .thenApplyAsync(failure -> {
+                            if (failure != null) {
+                                throw new SkippedException("A dependency of step " + step.id + " failed");
+                            }
+                            return CallDeadline.callWithin(deadline, () -> run(step, results, bot, permits));
+                        }, executor));
+            }
+            CompletableFuture.allOf(results.values().toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        }
+
+        ArrayNode report = MAPPER.createArrayNode();
+        for (Step step : plan.values()) {
+            ObjectNode entry = report.addObject().put("id", step.id).put("tool", step.tool);
+            CompletableFuture<String> result = results.get(step.id);
+            try {
+                entry.put("status", "ok").put("result", result.join());
+            } catch (RuntimeException e) {
+                Throwable cause = e.getCause() == null ? e : e.getCause();
+                if (cause instanceof SkippedException) {
+                    entry.put("status", "skipped").put("error", cause.getMessage());
+                } else {
+                    entry.put("status", "error").put("error", String.valueOf(cause.getMessage()));
+                }
+            }
+        }
+        return report.toPrettyString();
+    }
+
+    private String run(Step step, Map<String, CompletableFuture<String>> results, String bot, Semaphore permits) {
+        ObjectNode args = step.args.deepCopy();
+        resolveReferences(args, results);
+        if (!BotContext.DEFAULT_BOT.equals(bot) && !args.has("bot")) {
+            args.put("bot", bot);
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch interrupted", e);
+        }
+        try {
+            return unwrap(toolCallbackRegistry.get(step.tool).call(args.toString()));
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void resolveReferences(ObjectNode args, Map<String, CompletableFuture<String>> results) {
+        Iterator<Map.Entry<String, JsonNode>> fields = args.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!field.getValue().isTextual()) {
+                continue;
+            }
+            Matcher matcher = REFERENCE.matcher(field.getValue().asText());
+            StringBuilder resolved = new StringBuilder();
+            while (matcher.find()) {
+                // Dependencies have completed successfully before this step runs
+                String result = results.get(matcher.group(1)).join();
+                String replacement = result;
+                if (matcher.group(2) != null) {
+                    Matcher id = CREATED_ID.matcher(result);
+                    if (!id.find()) {
+                        throw new IllegalArgumentException("No \"(ID: ...)\" found in the result of step " + matcher.group(1));
+                    }
+                    replacement = id.group(1);
+                }
+                matcher.appendReplacement(resolved, Matcher.quoteReplacement(replacement));
+            }
+            matcher.appendTail(resolved);
+            field.setValue(TextNode.valueOf(resolved.toString()));
+        }
+    }
+
+    private Map<String, Step> parse(String steps) {
+        JsonNode root;
+        try {
+            root = MAPPER.readTree(steps);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("steps must be a JSON array: " + e.getOriginalMessage());
+        }
+        if (!root.isArray() || root.isEmpty()) {
+            throw new IllegalArgumentException("steps must be a non-empty JSON array");
+        }
+        if (root.size() > maxSteps) {
+            throw new IllegalArgumentException("A batch can contain at most " + maxSteps + " steps");
+        }
+        Map<String, Step> plan = new LinkedHashMap<>();
+        for (int i = 0; i < root.size(); i++) {
+            JsonNode node = root.get(i);
+            String id = node.hasNonNull("id") ? node.get("id").asText() : "step" + (i + 1);
+            String tool = node.path("tool").asText("");
+            if (tool.isEmpty()) {
+                throw new IllegalArgumentException("Step " + id + " has no tool");
+            }
+            if (TOOL_NAME.equals(tool)) {
+                throw new IllegalArgumentException("Step " + id + ": batches cannot be nested");
+            }
+            toolCallbackRegistry.get(tool);
+            JsonNode args = node.path("args");
+            if (!args.isMissingNode() && !args.isObject()) {
+                throw new IllegalArgumentException("Step " + id + ": args must be a JSON object");
+            }
+            Step step = new Step(id, tool, args.isObject() ? (ObjectNode) args : MAPPER.createObjectNode());
+            node.path("dependsOn").forEach(dependency -> step.dependsOn.add(dependency.asText()));
+            args.forEach(value -> {
+                Matcher matcher = REFERENCE.matcher(value.isTextual() ? value.asText() : "");
+                while (matcher.find()) {
+                    step.dependsOn.add(matcher.group(1));
+                }
+            });
+            if (plan.put(id, step) != null) {
+                throw new IllegalArgumentException("Duplicate step id: " + id);
+            }
+        }
+        for (Step step : plan.values()) {
+            for (String dependency : step.dependsOn) {
+                if (!plan.containsKey(dependency)) {
+                    throw new IllegalArgumentException("Step " + step.id + " depends on unknown step " + dependency);
+                }
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Reorders the plan topologically, failing on dependency cycles.
+     */
+    private static void sortTopologically(Map<String, Step> plan) {
+        Map<String, Step> ordered = new LinkedHashMap<>();
+        Set<String> visiting = new LinkedHashSet<>();
+        for (Step step : plan.values()) {
+            visit(step, plan, ordered, visiting);
+        }
+        plan.clear();
+        plan.putAll(ordered);
+    }
+
+    private static void visit(Step step, Map<String, Step> plan, Map<String, Step> ordered, Set<String> visiting) {
+        if (ordered.containsKey(step.id)) {
+            return;
+        }
+        if (!visiting.add(step.id)) {
+            throw new IllegalArgumentException("Dependency cycle: " + String.join(" -> ", visiting) + " -> " + step.id);
+        }
+        for (String dependency : step.dependsOn) {
+            visit(plan.get(dependency), plan, ordered, visiting);
+        }
+        visiting.remove(step.id);
+        ordered.put(step.id, step);
+    }
+
+    private static String unwrap(String result) {
+        // Method tool results are serialized as JSON, so plain strings arrive quoted
+        if (result != null && result.startsWith("\"")) {
+            try {
+                return MAPPER.readValue(result, String.class);
+            } catch (JsonProcessingException e) {
+                return result;
+            }
+        }
+        return result;
+    }
+
+    private static final class Step {
+        private final String id;
+        private final String tool;
+        private final ObjectNode args;
+        private final Set<String> dependsOn = new LinkedHashSet<>();
+
+        private Step(String id, String tool, ObjectNode args) {
+            this.id = id;
+            this.tool = tool;
+            this.args = args;
+        }
+    }
+
+    private static final class SkippedException extends RuntimeException {
+        private SkippedException(String message) {
+            super(message);
+        }
+    }
+}
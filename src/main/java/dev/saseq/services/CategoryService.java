@@ -1,8 +1,14 @@
 package dev.saseq.services;
 
+import dev.saseq.configs.CallDeadline;
+import dev.saseq.configs.GuildSnapshot;
+import dev.saseq.configs.GuildSnapshotStore;
 import dev.saseq.configs.LazyJDAProvider;
+import dev.saseq.configs.PermissionGuard;
 import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
 import net.dv8tion.jda.api.entities.channel.concrete.Category;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
 import org.springframework.ai.tool.annotation.Tool;
@@ -17,12 +23,16 @@ import java.util.stream.Collectors;
 public class CategoryService {
 
     private final LazyJDAProvider jdaProvider;
+    private final PermissionGuard permissionGuard;
+    private final GuildSnapshotStore guildSnapshots;
 
     @Value("${DISCORD_GUILD_ID:}")
     private String defaultGuildId;
 
-    public CategoryService(LazyJDAProvider jdaProvider) {
+    public CategoryService(LazyJDAProvider jdaProvider, PermissionGuard permissionGuard, GuildSnapshotStore guildSnapshots) {
         this.jdaProvider = jdaProvider;
+        this.permissionGuard = permissionGuard;
+        this.guildSnapshots = guildSnapshots;
     }
 
     private String resolveGuildId(String guildId) {
@@ -37,7 +47,7 @@ public class CategoryService {
      *
      * @param guildId Optional ID of the Discord server (guild). If not provided, the default server will be used.
      * @param name    The name for the new category.
-     * @return A confirmation message with the name of the created category.
+     * @return A confirmation message with the name and ID of the created category.
      */
     @Tool(name = "create_category", description = "Create a new category for channels")
     public String createCategory(@ToolParam(description = "Discord server ID", required = false) String guildId,
@@ -54,8 +64,9 @@ public class CategoryService {
         if (guild == null) {
             throw new IllegalArgumentException("Discord server not found by guildId");
         }
-        Category category = guild.createCategory(name).complete();
-        return "Created new category: " + category.getName();
+        permissionGuard.require(guild, Permission.MANAGE_CHANNEL);
+        Category category = CallDeadline.complete(guild.createCategory(name));
+        return "Created new category: " + category.getName() + " (ID: " + category.getId() + ")";
     }
 
     /**
@@ -84,7 +95,8 @@ public class CategoryService {
         if (category == null) {
             throw new IllegalArgumentException("Category not found by categoryId");
         }
-        category.delete().queue();
+        permissionGuard.require(category, Permission.MANAGE_CHANNEL);
+        CallDeadline.complete(category.delete());
         return "Deleted category: " + category.getName();
     }
 
@@ -106,6 +118,16 @@ public class CategoryService {
             throw new IllegalArgumentException("categoryName cannot be null");
         }
 
+        GuildSnapshot.GuildEntry snapshot = guildSnapshots.getGuildIfNotReady(guildId);
+        if (snapshot != null) {
+            List<GuildSnapshot.ChannelEntry> categories = snapshot.channelsByName(categoryName, ChannelType.CATEGORY);
+            if (categories.size() == 1) {
+                return guildSnapshots.staleNotice() + "Retrieved category: " + categories.get(0).name() +
+                        ", with ID: " + categories.get(0).id();
+            }
+            // Not found or ambiguous: the live cache decides
+        }
+
         Guild guild = jdaProvider.getJDA().getGuildById(guildId);
         if (guild == null) {
             throw new IllegalArgumentException("Discord server not found by guildId");
@@ -143,6 +165,17 @@ public class CategoryService {
             throw new IllegalArgumentException("categoryId cannot be null");
         }
 
+        GuildSnapshot.GuildEntry snapshot = guildSnapshots.getGuildIfNotReady(guildId);
+        if (snapshot != null && snapshot.channel(categoryId) != null) {
+            List<GuildSnapshot.ChannelEntry> channels = snapshot.channelsInCategory(categoryId);
+            if (!channels.isEmpty()) {
+                return ResultWriter.forEntries(channels.size()).append(guildSnapshots.staleNotice())
+                        .append("Retrieved ").append(channels.size()).append(" channels:\n")
+                        .lines(channels, ResultWriter::channel)
+                        .toString();
+            }
+        }
+
         Guild guild = jdaProvider.getJDA().getGuildById(guildId);
         if (guild == null) {
             throw new IllegalArgumentException("Discord server not found by guildId");
@@ -155,9 +188,9 @@ public class CategoryService {
         if (channels.isEmpty()) {
             throw new IllegalArgumentException("Category not contains any channels");
         }
-        return "Retrieved " + channels.size() + " channels:\n" +
-                channels.stream()
-                        .map(c -> "- " + c.getType().name() + " channel: " + c.getName() + " (ID: " + c.getId() + ")")
-                        .collect(Collectors.joining("\n"));
+        return ResultWriter.forEntries(channels.size())
+                .append("Retrieved ").append(channels.size()).append(" channels:\n")
+                .lines(channels, ResultWriter::channel)
+                .toString();
     }
 }
\ No newline at end of file
@@ -1,10 +1,16 @@
 package dev.saseq.services;
 
+import dev.saseq.configs.CallDeadline;
+import dev.saseq.configs.GuildSnapshot;
+import dev.saseq.configs.GuildSnapshotStore;
 import dev.saseq.configs.LazyJDAProvider;
+import dev.saseq.configs.PermissionGuard;
 import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.channel.concrete.Category;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.entities.channel.concrete.ThreadChannel;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
@@ -12,18 +18,21 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class ChannelService {
 
     private final LazyJDAProvider jdaProvider;
+    private final PermissionGuard permissionGuard;
+    private final GuildSnapshotStore guildSnapshots;
 
     @Value("${DISCORD_GUILD_ID:}")
     private String defaultGuildId;
 
-    public ChannelService(LazyJDAProvider jdaProvider) {
+    public ChannelService(LazyJDAProvider jdaProvider, PermissionGuard permissionGuard, GuildSnapshotStore guildSnapshots) {
         this.jdaProvider = jdaProvider;
+        this.permissionGuard = permissionGuard;
+        this.guildSnapshots = guildSnapshots;
     }
 
     private String resolveGuildId(String guildId) {
@@ -59,7 +68,9 @@ public class ChannelService {
         if (channel == null) {
             throw new IllegalArgumentException("Channel not found by channelId");
         }
-        channel.delete().queue();
+        // Deleting a thread needs Manage Threads, not Manage Channels on its parent
+        permissionGuard.require(channel, channel instanceof ThreadChannel ? Permission.MANAGE_THREADS : Permission.MANAGE_CHANNEL);
+        CallDeadline.complete(channel.delete());
         return "Deleted " + channel.getType().name() + " channel: " + channel.getName();
     }
 
@@ -94,10 +105,12 @@ public class ChannelService {
             if (category == null) {
                 throw new IllegalArgumentException("Category not found by categoryId");
             }
-            textChannel = category.createTextChannel(name).complete();
+            permissionGuard.require(category, Permission.MANAGE_CHANNEL);
+            textChannel = CallDeadline.complete(category.createTextChannel(name));
             return "Created new text channel: " + textChannel.getName() + " (ID: " + textChannel.getId() + ") in category: " + category.getName();
         } else {
-            textChannel = guild.createTextChannel(name).complete();
+            permissionGuard.require(guild, Permission.MANAGE_CHANNEL);
+            textChannel = CallDeadline.complete(guild.createTextChannel(name));
             return "Created new text channel: " + textChannel.getName() + " (ID: " + textChannel.getId() + ")";
         }
     }
@@ -120,6 +133,16 @@ public class ChannelService {
             throw new IllegalArgumentException("channelName cannot be null");
         }
 
+        GuildSnapshot.GuildEntry snapshot = guildSnapshots.getGuildIfNotReady(guildId);
+        List<GuildSnapshot.ChannelEntry> matches = snapshot == null ? List.of() : snapshot.channelsByName(channelName, null);
+        // A channel missing from the snapshot may have been created since, so only matches are answered from it
+        if (!matches.isEmpty()) {
+            return ResultWriter.forEntries(matches.size()).append(guildSnapshots.staleNotice())
+                    .append("Retrieved ").append(matches.size()).append(" channels:\n")
+                    .lines(matches, ResultWriter::channel)
+                    .toString();
+        }
+
         Guild guild = jdaProvider.getJDA().getGuildById(guildId);
         if (guild == null) {
             throw new IllegalArgumentException("Discord server not found by guildId");
@@ -133,10 +156,10 @@ public class ChannelService {
             throw new IllegalArgumentException("No channels found with name " + channelName);
         }
         if (filteredChannels.size() > 1) {
-            return "Retrieved " + channels.size() + " channels:\n" +
-                    channels.stream()
-                            .map(c -> "- " + c.getType().name() + " channel: " + c.getName() + " (ID: " + c.getId() + ")")
-                            .collect(Collectors.joining("\n"));
+            return ResultWriter.forEntries(filteredChannels.size())
+                    .append("Retrieved ").append(filteredChannels.size()).append(" channels:\n")
+                    .lines(filteredChannels, ResultWriter::channel)
+                    .toString();
         }
         GuildChannel channel = filteredChannels.get(0);
         return "Retrieved " + channel.getType().name() + " channel: " + channel.getName() + " (ID: " + channel.getId() + ")";
@@ -155,6 +178,14 @@ public class ChannelService {
             throw new IllegalArgumentException("guildId cannot be null");
         }
 
+        GuildSnapshot.GuildEntry snapshot = guildSnapshots.getGuildIfNotReady(guildId);
+        if (snapshot != null && !snapshot.channels().isEmpty()) {
+            return ResultWriter.forEntries(snapshot.channels().size()).append(guildSnapshots.staleNotice())
+                    .append("Retrieved ").append(snapshot.channels().size()).append(" channels:\n")
+                    .lines(snapshot.channels(), ResultWriter::channel)
+                    .toString();
+        }
+
         Guild guild = jdaProvider.getJDA().getGuildById(guildId);
         if (guild == null) {
             throw new IllegalArgumentException("Discord server not found by guildId");
@@ -163,9 +194,9 @@ public class ChannelService {
         if (channels.isEmpty()) {
             throw new IllegalArgumentException("No channels found by guildId");
         }
-        return "Retrieved " + channels.size() + " channels:\n" +
-                channels.stream()
-                        .map(c -> "- " + c.getType().name() + " channel: " + c.getName() + " (ID: " + c.getId() + ")")
-                        .collect(Collectors.joining("\n"));
+        return ResultWriter.forEntries(channels.size())
+                .append("Retrieved ").append(channels.size()).append(" channels:\n")
+                .lines(channels, ResultWriter::channel)
+                .toString();
     }
 }
\ No newline at end of file
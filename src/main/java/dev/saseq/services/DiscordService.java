@@ -1,6 +1,7 @@
 package dev.saseq.services;
 
 import dev.saseq.configs.LazyJDAProvider;
+import dev.saseq.configs.RestEntityCache;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
@@ -13,12 +14,14 @@ import org.springframework.stereotype.Service;
 public class DiscordService {
 
     private final LazyJDAProvider jdaProvider;
+    private final RestEntityCache restEntityCache;
 
     @Value("${DISCORD_GUILD_ID:}")
     private String defaultGuildId;
 
-    public DiscordService(LazyJDAProvider jdaProvider) {
+    public DiscordService(LazyJDAProvider jdaProvider, RestEntityCache restEntityCache) {
         this.jdaProvider = jdaProvider;
+        this.restEntityCache = restEntityCache;
     }
 
     private String resolveGuildId(String guildId) {
@@ -47,7 +50,7 @@ public class DiscordService {
         }
         String serverName = guild.getName();
         String serverId = guild.getId();
-        Member owner = guild.retrieveOwner().complete();
+        Member owner = restEntityCache.getOwner(guild);
         int totalMembers = guild.getMemberCount();
         int textChannelCount = guild.getTextChannels().size();
         int voiceChannelCount = guild.getVoiceChannels().size();
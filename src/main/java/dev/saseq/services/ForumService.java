@@ -1,15 +1,23 @@
 package dev.saseq.services;
 
+import dev.saseq.configs.CallDeadline;
+import dev.saseq.configs.GuildSnapshot;
+import dev.saseq.configs.GuildSnapshotStore;
 import dev.saseq.configs.LazyJDAProvider;
+import dev.saseq.configs.PermissionGuard;
+import dev.saseq.configs.RequiresIntents;
 import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
 import net.dv8tion.jda.api.entities.channel.concrete.Category;
 import net.dv8tion.jda.api.entities.channel.concrete.ForumChannel;
 import net.dv8tion.jda.api.entities.channel.concrete.ThreadChannel;
 import net.dv8tion.jda.api.entities.channel.forums.ForumTag;
 import net.dv8tion.jda.api.entities.channel.forums.ForumTagData;
 import net.dv8tion.jda.api.entities.channel.forums.ForumPost;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
 import net.dv8tion.jda.api.utils.messages.MessageCreateBuilder;
 import net.dv8tion.jda.api.utils.messages.MessageCreateData;
 import org.springframework.ai.tool.annotation.Tool;
@@ -19,18 +27,22 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
+@RequiresIntents(cache = CacheFlag.FORUM_TAGS)
 public class ForumService {
 
     private final LazyJDAProvider jdaProvider;
+    private final PermissionGuard permissionGuard;
+    private final GuildSnapshotStore guildSnapshots;
 
     @Value("${DISCORD_GUILD_ID:}")
     private String defaultGuildId;
 
-    public ForumService(LazyJDAProvider jdaProvider) {
+    public ForumService(LazyJDAProvider jdaProvider, PermissionGuard permissionGuard, GuildSnapshotStore guildSnapshots) {
         this.jdaProvider = jdaProvider;
+        this.permissionGuard = permissionGuard;
+        this.guildSnapshots = guildSnapshots;
     }
 
     private String resolveGuildId(String guildId) {
@@ -73,13 +85,15 @@ public class ForumService {
             if (category == null) {
                 throw new IllegalArgumentException("Category not found by categoryId");
             }
-            forumChannel = category.createForumChannel(name).complete();
+            permissionGuard.require(category, Permission.MANAGE_CHANNEL);
+            forumChannel = CallDeadline.complete(category.createForumChannel(name));
         } else {
-            forumChannel = guild.createForumChannel(name).complete();
+            permissionGuard.require(guild, Permission.MANAGE_CHANNEL);
+            forumChannel = CallDeadline.complete(guild.createForumChannel(name));
         }
 
         if (topic != null && !topic.isEmpty()) {
-            forumChannel.getManager().setTopic(topic).queue();
+            CallDeadline.complete(forumChannel.getManager().setTopic(topic));
         }
 
         return "Created new forum channel: " + forumChannel.getName() + " (ID: " + forumChannel.getId() + ")" +
@@ -138,12 +152,11 @@ public class ForumService {
             }
         }
 
-        ForumPost post = postAction.complete();
+        ForumPost post = CallDeadline.complete(postAction);
         ThreadChannel thread = post.getThreadChannel();
         Message starterMessage = post.getMessage();
 
-        return "Created forum post successfully!\n" +
-               "Thread ID: " + thread.getId() + "\n" +
+        return "Created forum post successfully (ID: " + thread.getId() + ")\n" +
                "Thread Name: " + thread.getName() + "\n" +
                "Jump URL: " + starterMessage.getJumpUrl();
     }
@@ -161,6 +174,15 @@ public class ForumService {
             throw new IllegalArgumentException("guildId cannot be null");
         }
 
+        GuildSnapshot.GuildEntry snapshot = guildSnapshots.getGuildIfNotReady(guildId);
+        List<GuildSnapshot.ChannelEntry> snapshotForums = snapshot == null ? List.of() : snapshot.channelsOfType(ChannelType.FORUM);
+        if (!snapshotForums.isEmpty()) {
+            return ResultWriter.forEntries(snapshotForums.size()).append(guildSnapshots.staleNotice())
+                    .append("Retrieved ").append(snapshotForums.size()).append(" forum channels:\n")
+                    .lines(snapshotForums, ResultWriter::forum)
+                    .toString();
+        }
+
         Guild guild = jdaProvider.getJDA().getGuildById(guildId);
         if (guild == null) {
             throw new IllegalArgumentException("Discord server not found by guildId");
@@ -171,11 +193,10 @@ public class ForumService {
             return "No forum channels found in this server";
         }
 
-        return "Retrieved " + forums.size() + " forum channels:\n" +
-                forums.stream()
-                        .map(f -> "- " + f.getName() + " (ID: " + f.getId() + ")" +
-                                (f.getTopic() != null && !f.getTopic().isEmpty() ? " - " + f.getTopic() : ""))
-                        .collect(Collectors.joining("\n"));
+        return ResultWriter.forEntries(forums.size())
+                .append("Retrieved ").append(forums.size()).append(" forum channels:\n")
+                .lines(forums, ResultWriter::forum)
+                .toString();
     }
 
     /**
@@ -196,6 +217,21 @@ public class ForumService {
             throw new IllegalArgumentException("forumName cannot be null");
         }
 
+        GuildSnapshot.GuildEntry snapshot = guildSnapshots.getGuildIfNotReady(guildId);
+        List<GuildSnapshot.ChannelEntry> snapshotForums = snapshot == null ? List.of() : snapshot.channelsByName(forumName, ChannelType.FORUM);
+        if (!snapshotForums.isEmpty()) {
+            GuildSnapshot.ChannelEntry forum = snapshotForums.get(0);
+            ResultWriter result = ResultWriter.forEntries(forum.tags().size() + 2).append(guildSnapshots.staleNotice())
+                    .append("Found forum channel: ").append(forum.name()).append(" (ID: ").append(forum.id()).append(")\n");
+            if (forum.topic() != null && !forum.topic().isEmpty()) {
+                result.append("Topic: ").append(forum.topic()).append('\n');
+            }
+            if (!forum.tags().isEmpty()) {
+                result.append("Available tags:\n").lines(forum.tags(), ResultWriter::forumTag);
+            }
+            return result.toString();
+        }
+
         Guild guild = jdaProvider.getJDA().getGuildById(guildId);
         if (guild == null) {
             throw new IllegalArgumentException("Discord server not found by guildId");
@@ -207,26 +243,15 @@ public class ForumService {
         }
 
         ForumChannel forum = forums.get(0);
-        StringBuilder result = new StringBuilder();
-        result.append("Found forum channel: ").append(forum.getName())
-              .append(" (ID: ").append(forum.getId()).append(")\n");
-        
+        List<ForumTag> tags = forum.getAvailableTags();
+        ResultWriter result = ResultWriter.forEntries(tags.size() + 2)
+                .append("Found forum channel: ").append(forum.getName()).append(" (ID: ").append(forum.getId()).append(")\n");
         if (forum.getTopic() != null && !forum.getTopic().isEmpty()) {
-            result.append("Topic: ").append(forum.getTopic()).append("\n");
+            result.append("Topic: ").append(forum.getTopic()).append('\n');
         }
-
-        List<ForumTag> tags = forum.getAvailableTags();
         if (!tags.isEmpty()) {
-            result.append("Available tags:\n");
-            for (ForumTag tag : tags) {
-                result.append("- ").append(tag.getName());
-                if (tag.isModerated()) {
-                    result.append(" (moderated)");
-                }
-                result.append("\n");
-            }
+            result.append("Available tags:\n").lines(tags, ResultWriter::forumTag);
         }
-
         return result.toString();
     }
 
@@ -248,7 +273,8 @@ public class ForumService {
         }
 
         String forumName = forum.getName();
-        forum.delete().queue();
+        permissionGuard.require(forum, Permission.MANAGE_CHANNEL);
+        CallDeadline.complete(forum.delete());
         return "Deleted forum channel: " + forumName;
     }
 
@@ -293,7 +319,8 @@ public class ForumService {
         }
 
         currentTags.add(newTag);
-        forum.getManager().setAvailableTags(currentTags).queue();
+        permissionGuard.require(forum, Permission.MANAGE_CHANNEL);
+        CallDeadline.complete(forum.getManager().setAvailableTags(currentTags));
 
         return "Added tag '" + tagName + "' to forum channel: " + forum.getName();
     }
@@ -310,6 +337,18 @@ public class ForumService {
             throw new IllegalArgumentException("forumChannelId cannot be null");
         }
 
+        GuildSnapshot.GuildEntry snapshot = guildSnapshots.getGuildOfChannelIfNotReady(forumChannelId);
+        if (snapshot != null) {
+            GuildSnapshot.ChannelEntry forum = snapshot.channel(forumChannelId);
+            List<GuildSnapshot.ThreadEntry> threads = snapshot.threadsIn(forumChannelId);
+            if (forum.type() == ChannelType.FORUM && !threads.isEmpty()) {
+                return ResultWriter.forEntries(threads.size()).append(guildSnapshots.staleNotice())
+                        .append("Active threads in ").append(forum.name()).append(" (").append(threads.size()).append(" threads):\n")
+                        .lines(threads, ResultWriter::forumPost)
+                        .toString();
+            }
+        }
+
         ForumChannel forum = jdaProvider.getJDA().getForumChannelById(forumChannelId);
         if (forum == null) {
             throw new IllegalArgumentException("Forum channel not found by forumChannelId");
@@ -320,26 +359,9 @@ public class ForumService {
             return "No active threads found in forum: " + forum.getName();
         }
 
-        StringBuilder result = new StringBuilder();
-        result.append("Active threads in ").append(forum.getName()).append(" (").append(threads.size()).append(" threads):\n");
-        
-        for (ThreadChannel thread : threads) {
-            result.append("- ").append(thread.getName())
-                  .append(" (ID: ").append(thread.getId()).append(")");
-            
-            if (thread.isArchived()) {
-                result.append(" [ARCHIVED]");
-            }
-            if (thread.isLocked()) {
-                result.append(" [LOCKED]");
-            }
-            if (thread.isPinned()) {
-                result.append(" [PINNED]");
-            }
-            
-            result.append("\n");
-        }
-
-        return result.toString();
+        return ResultWriter.forEntries(threads.size())
+                .append("Active threads in ").append(forum.getName()).append(" (").append(threads.size()).append(" threads):\n")
+                .lines(threads, ResultWriter::forumPost)
+                .toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,469 @@
+package dev.saseq.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.saseq.configs.BotContext;
+import dev.saseq.configs.DiscordToolCallback;
+import dev.saseq.configs.LazyJDAProvider;
+import dev.saseq.configs.PriorityLanes;
+import dev.saseq.configs.ToolCallbackRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Background jobs: a tool applied to a list of argument sets, run step by step outside the calling tool invocation.
+ * Every state change is appended to a journal file, so queued and running jobs resume from their next step after a
+ * restart. A step interrupted by a shutdown resumes, since its pending requests are cancelled. A step that was calling
+ * its tool when the process died may have been applied, so it is not repeated but counted as failed, which keeps
+ * non-idempotent tools such as send_message from running twice. The journal is rewritten once it grew by {@value #COMPACT_AFTER_RECORDS} records, keeping only the
+ * {@value #RETAINED_FINISHED_JOBS} most recent finished jobs. Job steps run in the bulk {@link PriorityLanes lane} and yield to interactive tool calls before each
+ * request, so a long purge never delays the requests of an agent working in the same channels.
+ */
+@Service
+public class JobService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobService.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Set<String> NON_JOB_TOOLS = Set.of("submit_job", "job_status", "cancel_job", "execute_batch", "wait_for_messages");
+    private static final int RETAINED_FINISHED_JOBS = 100;
+    /**
+     * Journal records appended before the journal is rewritten with one snapshot per job.
+     */
+    private static final int COMPACT_AFTER_RECORDS = 10_000;
+
+    private final ToolCallbackRegistry toolCallbackRegistry;
+    private final PriorityLanes lanes;
+    private final LazyJDAProvider jdaProvider;
+    private final Path journal;
+    private final int maxItems;
+    private final long maxYieldMs;
+    private final ExecutorService workers;
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+    private final AtomicInteger jobCounter = new AtomicInteger();
+    private BufferedWriter journalWriter;
+    private int appendedRecords;
+
+    /**
+     * @param journal    File the job journal is appended to.
+     * @param workers    Jobs running at the same time.
+     * @param maxYieldMs Longest a job step waits for interactive calls to finish before it runs anyway.
+     */
+    public JobService(ToolCallbackRegistry toolCallbackRegistry,
+                      PriorityLanes lanes,
+                      LazyJDAProvider jdaProvider,
+                      @Value("${discord.mcp.jobs.journal:./data/jobs.journal}") String journal,
+                      @Value("${discord.mcp.jobs.workers:2}") int workers,
+                      @Value("${discord.mcp.jobs.max-items:10000}") int maxItems,
+                      @Value("${discord.mcp.jobs.max-yield-ms:2000}") long maxYieldMs) {
+        this.toolCallbackRegistry = toolCallbackRegistry;
+        this.lanes = lanes;
+        this.jdaProvider = jdaProvider;
+        this.journal = Path.of(journal).toAbsolutePath().normalize();
+        this.maxItems = maxItems;
+        this.maxYieldMs = maxYieldMs;
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workers), Thread.ofVirtual().name("Job-Worker-", 1).factory());
+    }
+
+    /**
+     * Submits a background job that calls one tool once per argument set.
+     *
+     * @param name  A short description of the job.
+     * @param tool  The tool to call, e.g. delete_message.
+     * @param items JSON array of argument objects, one per call.
+     * @return The job ID.
+     */
+    @Tool(name = "submit_job", description = "Run a tool for many argument sets as a persistent background job (e.g. purges, imports, fan-outs)")
+    public String submitJob(@ToolParam(description = "Short description of the job") String name,
+                            @ToolParam(description = "Tool to call for every item, e.g. delete_message") String tool,
+                            @ToolParam(description = "JSON array of argument objects, one per call, e.g. [{\"channelId\": \"1\", \"messageId\": \"2\"}]") String items) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("name cannot be null");
+        }
+        if (tool == null || tool.isEmpty()) {
+            throw new IllegalArgumentException("tool cannot be null");
+        }
+        if (NON_JOB_TOOLS.contains(tool)) {
+            throw new IllegalArgumentException(tool + " cannot run as a job");
+        }
+        toolCallbackRegistry.get(tool);
+        JsonNode parsed;
+        try {
+            parsed = items == null ? null : MAPPER.readTree(items);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("items must be a JSON array: " + e.getOriginalMessage());
+        }
+        if (parsed == null || !parsed.isArray() || parsed.isEmpty()) {
+            throw new IllegalArgumentException("items must be a non-empty JSON array of argument objects");
+        }
+        if (parsed.size() > maxItems) {
+            throw new IllegalArgumentException("A job can contain at most " + maxItems + " items");
+        }
+        List<ObjectNode> arguments = new ArrayList<>(parsed.size());
+        for (JsonNode item : parsed) {
+            if (!item.isObject()) {
+                throw new IllegalArgumentException("Every item must be a JSON object");
+            }
+            arguments.add((ObjectNode) item);
+        }
+
+        Job job = new Job(Long.toString(System.currentTimeMillis(), 36) + "-" + jobCounter.incrementAndGet(),
+                name, tool, BotContext.current(), arguments, System.currentTimeMillis());
+        synchronized (this) {
+            jobs.put(job.id, job);
+            append(submitRecord(job));
+        }
+        workers.execute(() -> jdaProvider.runInFlight(job.bot, () -> run(job)));
+        return "Submitted job " + job.id + " (" + arguments.size() + " calls of " + tool + "). Use job_status to follow progress";
+    }
+
+    /**
+     * Reports the state and progress of background jobs.
+     *
+     * @param jobId Optional job ID; all jobs are listed if omitted.
+     * @return The state and progress of the jobs.
+     */
+    @Tool(name = "job_status", description = "Get the state and progress of background jobs")
+    public synchronized String jobStatus(@ToolParam(description = "Job ID (optional, lists all)", required = false) String jobId) {
+        if (jobId != null && !jobId.isEmpty()) {
+            return getJob(jobId).describe();
+        }
+        if (jobs.isEmpty()) {
+            return "No jobs";
+        }
+        return jobs.values().stream().map(Job::describe).collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Cancels a queued or running job. Calls already made are not reverted.
+     *
+     * @param jobId The job ID.
+     * @return The state of the job.
+     */
+    @Tool(name = "cancel_job", description = "Cancel a queued or running background job")
+    public synchronized String cancelJob(@ToolParam(description = "Job ID") String jobId) {
+        Job job = getJob(jobId);
+        if (job.state == State.QUEUED || job.state == State.RUNNING) {
+            job.cancelRequested = true;
+            if (job.state == State.QUEUED) {
+                finish(job, State.CANCELLED);
+            }
+        }
+        return job.describe();
+    }
+
+    @PostConstruct
+    public synchronized void resume() {
+        if (Files.exists(journal)) {
+            try {
+                for (String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+                    replay(line);
+                }
+            } catch (IOException e) {
+                log.warn("Could not read job journal {}: {}", journal, e.getMessage());
+            }
+        }
+        for (Job job : jobs.values()) {
+            if ((job.state == State.QUEUED || job.state == State.RUNNING) && job.started == job.next) {
+                // The item was running when the process stopped, its requests may have reached Discord
+                job.failed++;
+                job.lastError = "item " + job.next + ": interrupted by a restart and not repeated, it may have been applied";
+                job.next++;
+                log.warn("Job {} item {} was interrupted by a restart and is skipped", job.id, job.started);
+            }
+        }
+        compact();
+        for (Job job : jobs.values()) {
+            if (job.state == State.QUEUED || job.state == State.RUNNING) {
+                job.state = State.QUEUED;
+                log.info("Resuming job {} at item {} of {}", job.id, job.next, job.total);
+                workers.execute(() -> jdaProvider.runInFlight(job.bot, () -> run(job)));
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        workers.shutdownNow();
+        closeJournal();
+    }
+
+    private void run(Job job) {
+        synchronized (this) {
+            if (job.state != State.QUEUED) {
+                return;
+            }
+            job.state = State.RUNNING;
+            append(stateRecord(job));
+        }
+        while (job.next < job.total) {
+            if (job.cancelRequested) {
+                synchronized (this) {
+                    finish(job, State.CANCELLED);
+                }
+                return;
+            }
+            ObjectNode args = job.items.get(job.next).deepCopy();
+            if (!BotContext.DEFAULT_BOT.equals(job.bot) && !args.has("bot")) {
+                args.put("bot", job.bot);
+            }
+            try {
+                String result = lanes.runBulk(maxYieldMs, () -> {
+                    synchronized (this) {
+                        job.started = job.next;
+                        append(startRecord(job));
+                    }
+                    return toolCallbackRegistry.get(job.tool).call(args.toString());
+                });
+                if (DiscordToolCallback.isDeadlineExceeded(result)) {
+                    job.failed++;
+                    job.lastError = "item " + job.next + ": deadline exceeded";
+                } else {
+                    job.succeeded++;
+                }
+            } catch (InterruptedException e) {
+                // Shutdown before the item started: the job stays RUNNING in the journal and resumes at this item
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // Shutdown during the call: its pending requests were cancelled, so the item resumes after a restart
+                    synchronized (this) {
+                        job.started = -1;
+                        append(progressRecord(job));
+                    }
+                    return;
+                }
+                job.failed++;
+                job.lastError = "item " + job.next + ": " + e.getMessage();
+            }
+            synchronized (this) {
+                job.next++;
+                append(progressRecord(job));
+            }
+        }
+        synchronized (this) {
+            finish(job, job.succeeded == 0 && job.failed > 0 ? State.FAILED : State.DONE);
+        }
+    }
+
+    private void finish(Job job, State state) {
+        job.state = state;
+        job.finishedAt = System.currentTimeMillis();
+        // Only the progress of a finished job is reported, its arguments are not needed anymore
+        job.items = List.of();
+        append(stateRecord(job));
+        trimFinished();
+    }
+
+    private void trimFinished() {
+        List<Job> finished = jobs.values().stream().filter(job -> job.finishedAt > 0).toList();
+        for (int i = 0; i < finished.size() - RETAINED_FINISHED_JOBS; i++) {
+            jobs.remove(finished.get(i).id);
+        }
+    }
+
+    private Job getJob(String jobId) {
+        if (jobId == null || jobId.isEmpty()) {
+            throw new IllegalArgumentException("jobId cannot be null");
+        }
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("Job not found by jobId");
+        }
+        return job;
+    }
+
+    private void replay(String line) {
+        try {
+            JsonNode record = MAPPER.readTree(line);
+            String id = record.path("id").asText();
+            switch (record.path("op").asText()) {
+                case "submit" -> {
+                    List<ObjectNode> items = new ArrayList<>();
+                    record.path("items").forEach(item -> items.add((ObjectNode) item));
+                    Job job = new Job(id, record.path("name").asText(), record.path("tool").asText(),
+                            record.path("bot").asText(BotContext.DEFAULT_BOT), items, record.path("submittedAt").asLong());
+                    job.total = record.path("total").asInt(items.size());
+                    jobs.put(id, job);
+                }
+                case "start" -> {
+                    Job job = jobs.get(id);
+                    if (job != null) {
+                        job.started = record.path("item").asInt();
+                    }
+                }
+                case "progress" -> {
+                    Job job = jobs.get(id);
+                    if (job != null) {
+                        job.started = -1;
+                        job.next = record.path("next").asInt();
+                        job.succeeded = record.path("succeeded").asInt();
+                        job.failed = record.path("failed").asInt();
+                        job.lastError = record.hasNonNull("error") ? record.get("error").asText() : null;
+                    }
+                }
+                case "state" -> {
+                    Job job = jobs.get(id);
+                    if (job != null) {
+                        job.state = State.valueOf(record.path("state").asText());
+                        job.finishedAt = record.path("finishedAt").asLong();
+                        if (job.finishedAt > 0) {
+                            job.items = List.of();
+                        }
+                    }
+                }
+                default -> log.debug("Skipping unknown job journal record: {}", line);
+            }
+        } catch (JsonProcessingException | IllegalArgumentException | ClassCastException e) {
+            // A torn last line after a crash is expected, the job resumes from its previous record
+            log.debug("Skipping unreadable job journal record: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrites the journal with one snapshot per job, dropping the oldest finished jobs.
+     */
+    private void compact() {
+        trimFinished();
+        closeJournal();
+        appendedRecords = 0;
+        Path partial = journal.resolveSibling(journal.getFileName() + ".part");
+        try {
+            Files.createDirectories(journal.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+                for (Job job : jobs.values()) {
+                    writer.write(submitRecord(job));
+                    writer.newLine();
+                    writer.write(progressRecord(job));
+                    writer.newLine();
+                    if (job.started == job.next) {
+                        writer.write(startRecord(job));
+                        writer.newLine();
+                    }
+                    writer.write(stateRecord(job));
+                    writer.newLine();
+                }
+            }
+            Files.move(partial, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not compact job journal {}: {}", journal, e.getMessage());
+        }
+    }
+
+    private void append(String record) {
+        try {
+            if (journalWriter == null) {
+                Files.createDirectories(journal.getParent());
+                journalWriter = Files.newBufferedWriter(journal, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            journalWriter.write(record);
+            journalWriter.newLine();
+            journalWriter.flush();
+        } catch (IOException e) {
+            log.warn("Could not write job journal {}: {}", journal, e.getMessage());
+        }
+        if (++appendedRecords >= COMPACT_AFTER_RECORDS) {
+            compact();
+        }
+    }
+
+    private void closeJournal() {
+        try {
+            if (journalWriter != null) {
+                journalWriter.close();
+            }
+        } catch (IOException e) {
+            log.debug("Could not close job journal: {}", e.getMessage());
+        }
+        journalWriter = null;
+    }
+
+    private static String submitRecord(Job job) {
+        ObjectNode record = MAPPER.createObjectNode().put("op", "submit").put("id", job.id).put("name", job.name)
+                .put("tool", job.tool).put("bot", job.bot).put("submittedAt", job.submittedAt).put("total", job.total);
+        ArrayNode items = record.putArray("items");
+        job.items.forEach(items::add);
+        return record.toString();
+    }
+
+    private static String startRecord(Job job) {
+        return MAPPER.createObjectNode().put("op", "start").put("id", job.id).put("item", job.started).toString();
+    }
+
+    private static String progressRecord(Job job) {
+        return MAPPER.createObjectNode().put("op", "progress").put("id", job.id).put("next", job.next)
+                .put("succeeded", job.succeeded).put("failed", job.failed).put("error", job.lastError).toString();
+    }
+
+    private static String stateRecord(Job job) {
+        return MAPPER.createObjectNode().put("op", "state").put("id", job.id).put("state", job.state.name())
+                .put("finishedAt", job.finishedAt).toString();
+    }
+
+    private enum State {
+        QUEUED, RUNNING, DONE, FAILED, CANCELLED
+    }
+
+    private static final class Job {
+        private final String id;
+        private final String name;
+        private final String tool;
+        private final String bot;
+        private final long submittedAt;
+        private volatile List<ObjectNode> items;
+        private volatile int total;
+        private volatile State state = State.QUEUED;
+        private volatile int next;
+        /**
+         * Item whose tool call started last, -1 before the first call.
+         */
+        private volatile int started = -1;
+        private volatile int succeeded;
+        private volatile int failed;
+        private volatile String lastError;
+        private volatile long finishedAt;
+        private volatile boolean cancelRequested;
+
+        private Job(String id, String name, String tool, String bot, List<ObjectNode> items, long submittedAt) {
+            this.id = id;
+            this.name = name;
+            this.tool = tool;
+            this.bot = bot;
+            this.items = items;
+            this.total = items.size();
+            this.submittedAt = submittedAt;
+        }
+
+        private String describe() {
+            return id + " (" + name + ", " + tool + "): " + state + ", " + next + "/" + total + " items ("
+                    + succeeded + " succeeded, " + failed + " failed)"
+                    + (lastError == null ? "" : ", last error: " + lastError);
+        }
+    }
+}
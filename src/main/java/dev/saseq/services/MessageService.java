@@ -1,24 +1,47 @@
 package dev.saseq.services;
 
+import dev.saseq.configs.CallDeadline;
+import dev.saseq.configs.ChannelWriteScheduler;
 import dev.saseq.configs.LazyJDAProvider;
+import dev.saseq.configs.RequestCoalescer;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageHistory;
+import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import net.dv8tion.jda.api.entities.emoji.Emoji;
+import net.dv8tion.jda.api.utils.TimeUtil;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 @Service
 public class MessageService {
 
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_RANGE_MESSAGES = 1000;
+
     private final LazyJDAProvider jdaProvider;
+    private final RequestCoalescer requestCoalescer;
+    private final ChannelWriteScheduler writeScheduler;
 
-    public MessageService(LazyJDAProvider jdaProvider) {
+    public MessageService(LazyJDAProvider jdaProvider, RequestCoalescer requestCoalescer, ChannelWriteScheduler writeScheduler) {
         this.jdaProvider = jdaProvider;
+        this.requestCoalescer = requestCoalescer;
+        this.writeScheduler = writeScheduler;
     }
 
     /**
@@ -42,8 +65,9 @@ public class MessageService {
         if (textChannelById == null) {
             throw new IllegalArgumentException("Channel not found by channelId");
         }
-        Message sentMessage = textChannelById.sendMessage(message).complete();
-        return "Message sent successfully. Message link: " + sentMessage.getJumpUrl();
+        Message sentMessage = writeScheduler.submit(channelId, () -> CallDeadline.complete(textChannelById.sendMessage(message)));
+        requestCoalescer.invalidate("messages:" + channelId + ":");
+        return "Message sent successfully (ID: " + sentMessage.getId() + "). Message link: " + sentMessage.getJumpUrl();
     }
 
     /**
@@ -72,11 +96,12 @@ public class MessageService {
         if (textChannelById == null) {
             throw new IllegalArgumentException("Channel not found by channelId");
         }
-        Message messageById = textChannelById.retrieveMessageById(messageId).complete();
+        Message messageById = CallDeadline.complete(textChannelById.retrieveMessageById(messageId));
         if (messageById == null) {
             throw new IllegalArgumentException("Message not found by messageId");
         }
-        Message editedMessage = messageById.editMessage(newMessage).complete();
+        Message editedMessage = CallDeadline.complete(messageById.editMessage(newMessage));
+        requestCoalescer.invalidate("messages:" + channelId + ":");
         return "Message edited successfully. Message link: " + editedMessage.getJumpUrl();
     }
 
@@ -101,11 +126,12 @@ public class MessageService {
         if (textChannelById == null) {
             throw new IllegalArgumentException("Channel not found by channelId");
         }
-        Message messageById = textChannelById.retrieveMessageById(messageId).complete();
+        Message messageById = CallDeadline.complete(textChannelById.retrieveMessageById(messageId));
         if (messageById == null) {
             throw new IllegalArgumentException("Message not found by messageId");
         }
-        messageById.delete().queue();
+        CallDeadline.complete(messageById.delete());
+        requestCoalescer.invalidate("messages:" + channelId + ":");
         return "Message deleted successfully";
     }
 
@@ -131,9 +157,83 @@ public class MessageService {
         if (textChannelById == null) {
             throw new IllegalArgumentException("Channel not found by channelId");
         }
-        List<Message> messages = textChannelById.getHistory().retrievePast(limit).complete();
-        List<String> formatedMessages = formatMessages(messages);
-        return "**Retrieved " + messages.size() + " messages:** \n" + String.join("\n", formatedMessages);
+        int historyLimit = limit;
+        List<Message> messages = requestCoalescer.complete("messages:" + channelId + ":" + historyLimit,
+                () -> textChannelById.getHistory().retrievePast(historyLimit));
+        return ResultWriter.forMessages(messages)
+                .append("**Retrieved ").append(messages.size()).append(" messages:** \n")
+                .messages(messages)
+                .toString();
+    }
+
+    /**
+     * Reads the messages posted in a time window, oldest first. Message IDs are snowflakes that embed their creation
+     * time, so the start of the window is turned into a synthetic message ID and history is read forward from there
+     * with {@code getHistoryAfter}. Only pages inside the window are fetched, however deep the window lies in history.
+     *
+     * @param channelId Optional ID of a channel or thread; required unless userId is given.
+     * @param userId    Optional ID of a user whose direct messages to read instead of a channel.
+     * @param start     Start of the window (inclusive), ISO-8601 date-time or date, e.g. 2024-05-14T14:00:00+02:00 (UTC if no offset).
+     * @param end       Optional end of the window (exclusive), same format (default is now).
+     * @param count     Optional maximum number of messages to retrieve (default is 100).
+     * @return A formatted string containing the retrieved messages.
+     */
+    @Tool(name = "read_messages_between", description = "Read the messages of a channel, thread or DM posted in a time window, oldest first")
+    public String readMessagesBetween(@ToolParam(description = "Discord channel or thread ID (optional if userId is given)", required = false) String channelId,
+                                      @ToolParam(description = "Discord user ID to read direct messages with (optional)", required = false) String userId,
+                                      @ToolParam(description = "Start of the window, ISO-8601 date-time or date, e.g. 2024-05-14T14:00:00+02:00 (UTC if no offset)") String start,
+                                      @ToolParam(description = "End of the window, same format (optional, default now)", required = false) String end,
+                                      @ToolParam(description = "Maximum number of messages to retrieve (default 100)", required = false) String count) {
+        OffsetDateTime from = parseTime(start, "start");
+        if (from == null) {
+            throw new IllegalArgumentException("start cannot be null");
+        }
+        OffsetDateTime to = parseTime(end, "end");
+        long toMillis = to == null ? System.currentTimeMillis() : to.toInstant().toEpochMilli();
+        if (toMillis <= from.toInstant().toEpochMilli()) {
+            throw new IllegalArgumentException("end must be after start");
+        }
+        int limit = count == null || count.isEmpty() ? 100 : Integer.parseInt(count);
+        if (limit < 1 || limit > MAX_RANGE_MESSAGES) {
+            throw new IllegalArgumentException("count must be between 1 and " + MAX_RANGE_MESSAGES);
+        }
+        MessageChannel channel = resolveMessageChannel(channelId, userId);
+
+        // A message ID below the first millisecond of the window, and the first ID past its end
+        long afterId = TimeUtil.getDiscordTimestamp(from.toInstant().toEpochMilli()) - 1;
+        long endId = TimeUtil.getDiscordTimestamp(toMillis);
+        MessageHistory history = CallDeadline.complete(MessageHistory.getHistoryAfter(channel, Long.toUnsignedString(afterId)).limit(PAGE_SIZE));
+        List<Message> page = history.getRetrievedHistory();
+        List<Message> messages = new ArrayList<>();
+        boolean pastEnd = false;
+        while (true) {
+            for (Message message : page) {
+                if (message.getIdLong() < endId) {
+                    messages.add(message);
+                } else {
+                    pastEnd = true;
+                }
+            }
+            if (pastEnd || page.size() < PAGE_SIZE || messages.size() >= limit) {
+                break;
+            }
+            page = CallDeadline.complete(history.retrieveFuture(PAGE_SIZE));
+        }
+
+        messages.sort(Comparator.comparingLong(Message::getIdLong));
+        boolean truncated = messages.size() > limit || !pastEnd && page.size() == PAGE_SIZE;
+        if (messages.size() > limit) {
+            messages = messages.subList(0, limit);
+        }
+        ResultWriter result = ResultWriter.forMessages(messages)
+                .append("**Retrieved ").append(messages.size()).append(" messages between ").append(from.toString())
+                .append(" and ").append(to == null ? "now" : to.toString()).append(":** \n")
+                .messages(messages);
+        if (truncated && !messages.isEmpty()) {
+            result.append("\nMore messages in this window, continue with start=")
+                    .append(messages.get(messages.size() - 1).getTimeCreated().plusNanos(1_000_000).toString());
+        }
+        return result.toString();
     }
 
     /**
@@ -162,11 +262,11 @@ public class MessageService {
         if (textChannelById == null) {
             throw new IllegalArgumentException("Channel not found by channelId");
         }
-        Message message = textChannelById.retrieveMessageById(messageId).complete();
+        Message message = CallDeadline.complete(textChannelById.retrieveMessageById(messageId));
         if (message == null) {
             throw new IllegalArgumentException("Message not found by messageId");
         }
-        message.addReaction(Emoji.fromUnicode(emoji)).queue();
+        CallDeadline.complete(message.addReaction(Emoji.fromUnicode(emoji)));
         return "Added reaction successfully. Message link: " + message.getJumpUrl();
     }
 
@@ -196,23 +296,42 @@ public class MessageService {
         if (textChannelById == null) {
             throw new IllegalArgumentException("Channel not found by channelId");
         }
-        Message message = textChannelById.retrieveMessageById(messageId).complete();
+        Message message = CallDeadline.complete(textChannelById.retrieveMessageById(messageId));
         if (message == null) {
             throw new IllegalArgumentException("Message not found by messageId");
         }
-        message.removeReaction(Emoji.fromUnicode(emoji)).queue();
+        CallDeadline.complete(message.removeReaction(Emoji.fromUnicode(emoji)));
         return "Added reaction successfully. Message link: " + message.getJumpUrl();
     }
 
-    private List<String> formatMessages(List<Message> messages) {
-        return messages.stream()
-                .map(m -> {
-                    String authorName = m.getAuthor().getName();
-                    String timestamp = m.getTimeCreated().toString();
-                    String content = m.getContentDisplay();
-                    String messageId = m.getId();
+    private MessageChannel resolveMessageChannel(String channelId, String userId) {
+        JDA jda = jdaProvider.getJDA();
+        if (channelId != null && !channelId.isEmpty()) {
+            MessageChannel channel = jda.getChannelById(MessageChannel.class, channelId);
+            if (channel == null) {
+                throw new IllegalArgumentException("Channel not found by channelId");
+            }
+            return channel;
+        }
+        if (userId == null || userId.isEmpty()) {
+            throw new IllegalArgumentException("channelId or userId is required");
+        }
+        User user = CallDeadline.complete(jda.retrieveUserById(userId));
+        return CallDeadline.complete(user.openPrivateChannel());
+    }
 
-                    return String.format("- (ID: %s) **[%s]** `%s`: ```%s```", messageId, authorName, timestamp, content);
-                }).toList();
+    private static OffsetDateTime parseTime(String time, String name) {
+        if (time == null || time.isEmpty()) {
+            return null;
+        }
+        try {
+            if (time.length() == 10) {
+                return LocalDate.parse(time).atStartOfDay().atOffset(ZoneOffset.UTC);
+            }
+            TemporalAccessor parsed = DateTimeFormatter.ISO_DATE_TIME.parseBest(time, OffsetDateTime::from, LocalDateTime::from);
+            return parsed instanceof OffsetDateTime offsetDateTime ? offsetDateTime : ((LocalDateTime) parsed).atOffset(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be an ISO-8601 date-time or date (e.g. 2024-05-14T14:00:00Z)");
+        }
     }
-}
\ No newline at end of file
+}
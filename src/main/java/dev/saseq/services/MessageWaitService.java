@@ -0,0 +1,235 @@
+package dev.saseq.services;
+
+import dev.saseq.configs.CallDeadline;
+import dev.saseq.configs.LazyJDAProvider;
+import dev.saseq.configs.PriorityLanes;
+import dev.saseq.configs.RequiresIntents;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.concrete.ThreadChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Long-poll tool fed by {@link MessageReceivedEvent}s. Each waiter registers under its channel ID and collects
+ * matching messages until it has enough or times out, so monitoring a channel costs no REST requests.
+ * Waiters only hold a small filter and a future, and the blocked tool call parks a (virtual) thread, so thousands
+ * of concurrent waiters stay cheap.
+ * <p>
+ * Message content is a privileged intent and only requested with {@code discord.mcp.wait.message-content=true}
+ * (see {@link dev.saseq.configs.ToolSelection}). Without it, Discord sends empty content for messages that neither
+ * mention the bot nor are DMs, so a {@code pattern} filter only matches those.
+ */
+@Service
+@RequiresIntents(GatewayIntent.GUILD_MESSAGES)
+public class MessageWaitService extends ListenerAdapter {
+
+    private static final int MAX_COUNT = 100;
+
+    private final LazyJDAProvider jdaProvider;
+    private final PriorityLanes lanes;
+    private final long maxTimeoutSeconds;
+    private final int maxWaiters;
+    private final Map<String, Set<Waiter>> waitersByChannel = new ConcurrentHashMap<>();
+    private final AtomicInteger activeWaiters = new AtomicInteger();
+
+    public MessageWaitService(LazyJDAProvider jdaProvider,
+                              PriorityLanes lanes,
+                              @Value("${discord.mcp.wait.max-timeout-seconds:300}") long maxTimeoutSeconds,
+                              @Value("${discord.mcp.wait.max-waiters:10000}") int maxWaiters) {
+        this.jdaProvider = jdaProvider;
+        this.lanes = lanes;
+        this.maxTimeoutSeconds = maxTimeoutSeconds;
+        this.maxWaiters = maxWaiters;
+    }
+
+    /**
+     * Waits until new messages matching the filters arrive in a channel or the timeout expires.
+     *
+     * @param channelId      The ID of the channel or thread to watch.
+     * @param count          Optional number of messages to wait for (default is 1, at most 100).
+     * @param timeoutSeconds Optional timeout in seconds (default is 30).
+     * @param authorId       Optional ID of the user whose messages should match.
+     * @param mentionsBot    Optional "true" to only match messages mentioning the bot.
+     * @param pattern        Optional regular expression the message content must contain a match of.
+     * @param includeThreads Optional "true" to also match messages in threads of the channel.
+     * @return A formatted string with the received messages, noting when the wait timed out.
+     */
+    @Tool(name = "wait_for_messages", description = "Wait for new messages in a channel matching optional filters, without polling")
+    public String waitForMessages(@ToolParam(description = "Discord channel or thread ID") String channelId,
+                                  @ToolParam(description = "Number of messages to wait for (default 1, max 100)", required = false) String count,
+                                  @ToolParam(description = "Timeout in seconds (default 30)", required = false) String timeoutSeconds,
+                                  @ToolParam(description = "Only match messages from this user ID", required = false) String authorId,
+                                  @ToolParam(description = "Only match messages mentioning the bot (true/false)", required = false) String mentionsBot,
+                                  @ToolParam(description = "Regular expression the message content must match (content of messages not mentioning the bot is empty unless the Message Content intent is enabled)", required = false) String pattern,
+                                  @ToolParam(description = "Also match messages in threads of the channel (true/false)", required = false) String includeThreads) {
+        if (channelId == null || channelId.isEmpty()) {
+            throw new IllegalArgumentException("channelId cannot be null");
+        }
+        int limit = count == null || count.isEmpty() ? 1 : Integer.parseInt(count);
+        if (limit < 1 || limit > MAX_COUNT) {
+            throw new IllegalArgumentException("count must be between 1 and " + MAX_COUNT);
+        }
+        long timeout = timeoutSeconds == null || timeoutSeconds.isEmpty() ? 30 : Long.parseLong(timeoutSeconds);
+        if (timeout < 1 || timeout > maxTimeoutSeconds) {
+            throw new IllegalArgumentException("timeoutSeconds must be between 1 and " + maxTimeoutSeconds);
+        }
+        Pattern contentPattern;
+        try {
+            contentPattern = pattern == null || pattern.isEmpty() ? null : Pattern.compile(pattern);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid pattern: " + e.getDescription());
+        }
+
+        JDA jda = jdaProvider.getJDA();
+        GuildChannel channel = jda.getGuildChannelById(channelId);
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel not found by channelId");
+        }
+
+        Waiter waiter = new Waiter(jda, limit, emptyToNull(authorId), Boolean.parseBoolean(mentionsBot),
+                contentPattern, Boolean.parseBoolean(includeThreads));
+        if (activeWaiters.incrementAndGet() > maxWaiters) {
+            activeWaiters.decrementAndGet();
+            throw new IllegalStateException("Too many concurrent waiters, try again later");
+        }
+        // Register inside compute so a concurrent unregister cannot drop the channel's set between lookup and add
+        waitersByChannel.compute(channelId, (id, waiters) -> {
+            Set<Waiter> channelWaiters = waiters == null ? ConcurrentHashMap.newKeySet() : waiters;
+            channelWaiters.add(waiter);
+            return channelWaiters;
+        });
+        boolean timedOut = false;
+        // Waiting makes no Discord requests, so it must not hold back background jobs
+        lanes.pauseInteractive();
+        try {
+            // Return what arrived so far instead of running past the deadline of the invocation
+            waiter.future.get(Math.min(TimeUnit.SECONDS.toMillis(timeout), CallDeadline.remainingMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timedOut = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            timedOut = true;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Waiting for messages failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            lanes.resumeInteractive();
+            unregister(channelId, waiter);
+        }
+
+        List<Message> messages = waiter.drain();
+        if (messages.isEmpty()) {
+            return "No matching messages received within " + timeout + " seconds";
+        }
+        ResultWriter result = ResultWriter.forMessages(messages);
+        if (timedOut) {
+            result.append("**Timed out after ").append(timeout).append(" seconds, received ").append(messages.size())
+                    .append(" of ").append(limit).append(" messages:** \n");
+        } else {
+            result.append("**Received ").append(messages.size()).append(" messages:** \n");
+        }
+        return result.messages(messages).toString();
+    }
+
+    @Override
+    public void onMessageReceived(MessageReceivedEvent event) {
+        if (waitersByChannel.isEmpty()) {
+            return;
+        }
+        Message message = event.getMessage();
+        dispatch(event.getChannel().getId(), message, false);
+        if (event.getChannel() instanceof ThreadChannel thread) {
+            dispatch(thread.getParentChannel().getId(), message, true);
+        }
+    }
+
+    private void dispatch(String channelId, Message message, boolean inThread) {
+        Set<Waiter> waiters = waitersByChannel.get(channelId);
+        if (waiters == null) {
+            return;
+        }
+        for (Waiter waiter : waiters) {
+            if (waiter.matches(message, inThread)) {
+                waiter.offer(message);
+            }
+        }
+    }
+
+    private void unregister(String channelId, Waiter waiter) {
+        waitersByChannel.computeIfPresent(channelId, (id, waiters) -> {
+            waiters.remove(waiter);
+            return waiters.isEmpty() ? null : waiters;
+        });
+        activeWaiters.decrementAndGet();
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static final class Waiter {
+        private final JDA jda;
+        private final int count;
+        private final String authorId;
+        private final boolean mentionsBot;
+        private final Pattern pattern;
+        private final boolean includeThreads;
+        private final List<Message> messages = new ArrayList<>();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Waiter(JDA jda, int count, String authorId, boolean mentionsBot, Pattern pattern, boolean includeThreads) {
+            this.jda = jda;
+            this.count = count;
+            this.authorId = authorId;
+            this.mentionsBot = mentionsBot;
+            this.pattern = pattern;
+            this.includeThreads = includeThreads;
+        }
+
+        private boolean matches(Message message, boolean inThread) {
+            // Several bots may watch the same channel, each waiter only sees its own bot's events
+            if (message.getJDA() != jda || (inThread && !includeThreads) || future.isDone()) {
+                return false;
+            }
+            if (authorId != null && !authorId.equals(message.getAuthor().getId())) {
+                return false;
+            }
+            if (mentionsBot && !message.getMentions().isMentioned(jda.getSelfUser())) {
+                return false;
+            }
+            return pattern == null || pattern.matcher(message.getContentRaw()).find();
+        }
+
+        private synchronized void offer(Message message) {
+            if (messages.size() < count) {
+                messages.add(message);
+                if (messages.size() == count) {
+                    future.complete(null);
+                }
+            }
+        }
+
+        private synchronized List<Message> drain() {
+            return List.copyOf(messages);
+        }
+    }
+}
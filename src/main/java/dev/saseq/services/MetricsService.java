@@ -0,0 +1,169 @@
+package dev.saseq.services;
+
+import dev.saseq.configs.AttachmentCache;
+import dev.saseq.configs.ChannelWriteScheduler;
+import dev.saseq.configs.DiagnosticsSampler;
+import dev.saseq.configs.InvalidRequestBudget;
+import dev.saseq.configs.LatencyHistory;
+import dev.saseq.configs.LazyJDAProvider;
+import dev.saseq.configs.PermissionGuard;
+import dev.saseq.configs.RequestCoalescer;
+import dev.saseq.configs.RestEntityCache;
+import dev.saseq.configs.RestRequestRecorder;
+import dev.saseq.configs.SharedJdaExecutors;
+import dev.saseq.configs.TtlCache;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+
+@Service
+public class MetricsService {
+
+    private final RequestCoalescer requestCoalescer;
+    private final RestEntityCache restEntityCache;
+    private final AttachmentCache attachmentCache;
+    private final ChannelWriteScheduler writeScheduler;
+    private final PermissionGuard permissionGuard;
+    private final InvalidRequestBudget invalidRequestBudget;
+    private final LazyJDAProvider jdaProvider;
+    private final DiagnosticsSampler diagnosticsSampler;
+    private final RestRequestRecorder restRequestRecorder;
+    private final SharedJdaExecutors executors;
+
+    public MetricsService(RequestCoalescer requestCoalescer, RestEntityCache restEntityCache, AttachmentCache attachmentCache,
+                          ChannelWriteScheduler writeScheduler, PermissionGuard permissionGuard, InvalidRequestBudget invalidRequestBudget,
+                          LazyJDAProvider jdaProvider, DiagnosticsSampler diagnosticsSampler, RestRequestRecorder restRequestRecorder,
+                          SharedJdaExecutors executors) {
+        this.requestCoalescer = requestCoalescer;
+        this.restEntityCache = restEntityCache;
+        this.attachmentCache = attachmentCache;
+        this.writeScheduler = writeScheduler;
+        this.permissionGuard = permissionGuard;
+        this.invalidRequestBudget = invalidRequestBudget;
+        this.jdaProvider = jdaProvider;
+        this.diagnosticsSampler = diagnosticsSampler;
+        this.restRequestRecorder = restRequestRecorder;
+        this.executors = executors;
+    }
+
+    /**
+     * Reports runtime metrics of the server's request handling layers.
+     *
+     * @return A formatted string with request coalescing counters, the dedup ratio, REST and attachment cache statistics
+     * the depths of the per-channel write queues, permission pre-flight rejections and the invalid request budget.
+     */
+    @Tool(name = "get_metrics", description = "Get request coalescing and caching metrics of the MCP server")
+    public String getMetrics() {
+        StringBuilder caches = new StringBuilder("REST entity caches:\n");
+        for (TtlCache<?, ?> cache : restEntityCache.getCaches()) {
+            caches.append(" - ").append(cache.getName()).append(": ").append(cache.size()).append(" entries, ")
+                    .append(cache.getHitCount()).append(" hits, ").append(cache.getMissCount()).append(" misses\n");
+        }
+        StringBuilder writeQueues = new StringBuilder("\nChannel write queues:\n")
+                .append(" - Writes: ").append(writeScheduler.getWriteCount()).append(" across ").append(writeScheduler.getLaneCount())
+                .append(" channels, deepest queue seen: ").append(writeScheduler.getMaxDepth()).append('\n');
+        writeScheduler.getQueueDepths().forEach((channel, depth) ->
+                writeQueues.append(" - ").append(channel).append(": ").append(depth).append(" pending\n"));
+        return caches +
+                "Request coalescing:\n" +
+                " - Read requests: " + requestCoalescer.getRequestCount() + "\n" +
+                " - Joined in-flight: " + requestCoalescer.getCoalescedCount() + "\n" +
+                " - Served from result window: " + requestCoalescer.getTtlHitCount() +
+                " (TTL " + requestCoalescer.getResultTtlMs() + " ms)\n" +
+                " - Dedup ratio: " + String.format("%.1f%%", requestCoalescer.getDedupRatio() * 100) + "\n" +
+                "Attachment cache:\n" +
+                " - Objects: " + attachmentCache.size() + " (" + attachmentCache.getTotalBytes() + " bytes)\n" +
+                " - Hits: " + attachmentCache.getHitCount() + ", misses: " + attachmentCache.getMissCount() +
+                " (hit rate " + String.format("%.1f%%", attachmentCache.getHitRate() * 100) + ")\n" +
+                " - Download bytes saved: " + attachmentCache.getBytesSaved() +
+                ", disk bytes saved by reposted content: " + attachmentCache.getDedupedBytes() +
+                writeQueues +
+                "Invalid requests (401/403/429):\n" +
+                " - Permission pre-flight: " + permissionGuard.getCache().size() + " cached scopes, " +
+                permissionGuard.getRejectedCount() + " requests rejected locally\n" +
+                " - In the current window: " + invalidRequestBudget.getCount() + " of " + invalidRequestBudget.getLimit() +
+                " (" + String.format("%.1f%%", invalidRequestBudget.getUsage() * 100) + ")\n" +
+                " - Total: " + invalidRequestBudget.getTotalCount() + ", requests throttled: " + invalidRequestBudget.getThrottledCount() +
+                ", refused: " + invalidRequestBudget.getRejectedCount();
+    }
+
+    /**
+     * Reports the health of the Discord connections and of the JVM. Bots that are not connected are listed but not
+     * connected by this call.
+     *
+     * @return A formatted string with the gateway status and ping percentiles per bot, REST round-trip percentiles,
+     * JDA cache sizes, heap and direct memory usage, GC pauses and thread counts.
+     */
+    @Tool(name = "get_diagnostics", description = "Get gateway health, Discord latency, cache sizes and memory usage of the MCP server")
+    public String getDiagnostics() {
+        Map<String, JDA> connected = jdaProvider.getConnectedBots();
+        StringBuilder gateway = new StringBuilder("Gateway:\n");
+        for (String bot : jdaProvider.getBotProfiles()) {
+            JDA jda = connected.get(bot);
+            gateway.append(" - ").append(bot).append(": ");
+            if (jda == null) {
+                gateway.append("not connected\n");
+                continue;
+            }
+            LatencyHistory pings = diagnosticsSampler.getGatewayPings().get(bot);
+            gateway.append(jda.getStatus()).append(", ping ").append(jda.getGatewayPing()).append(" ms, history: ")
+                    .append(pings == null ? "no samples" : pings.summary("ms")).append('\n');
+        }
+        gateway.append(" - Events waiting for dispatch: ").append(executors.getEventQueueDepth()).append('\n');
+
+        StringBuilder caches = new StringBuilder("JDA caches:\n");
+        connected.forEach((bot, jda) -> {
+            long members = 0;
+            for (Guild guild : jda.getGuildCache()) {
+                members += guild.getMemberCache().size();
+            }
+            caches.append(" - ").append(bot).append(": ").append(jda.getGuildCache().size()).append(" guilds, ")
+                    .append(members).append(" members, ").append(jda.getUserCache().size()).append(" users, ")
+                    .append(jda.getChannelCache().size()).append(" channels, ")
+                    .append(jda.getThreadChannelCache().size()).append(" threads, ")
+                    .append(jda.getRoleCache().size()).append(" roles\n");
+        });
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        StringBuilder memory = new StringBuilder("Memory:\n")
+                .append(" - Heap: ").append(mb(heap.getUsed())).append(" used, ").append(mb(heap.getCommitted()))
+                .append(" committed, ").append(mb(heap.getMax())).append(" max");
+        if (heap.getMax() > 0) {
+            memory.append(" (").append(String.format("%.1f%%", 100.0 * heap.getUsed() / heap.getMax())).append(" of max)");
+        }
+        memory.append('\n');
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            memory.append(" - Buffer pool ").append(pool.getName()).append(": ").append(pool.getCount()).append(" buffers, ")
+                    .append(mb(pool.getMemoryUsed())).append(" used\n");
+        }
+
+        StringBuilder gc = new StringBuilder("Garbage collection:\n");
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gc.append(" - ").append(collector.getName()).append(": ").append(collector.getCollectionCount())
+                    .append(" collections, ").append(collector.getCollectionTime()).append(" ms total\n");
+        }
+        gc.append(" - Average stop-the-world pause per sample: ").append(diagnosticsSampler.getGcPauses().summary("ms")).append('\n');
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return gateway +
+                "REST round trips: " + restRequestRecorder.getRoundTrips().summary("ms") +
+                ", " + restRequestRecorder.getRoundTrips().getTotalCount() + " requests\n" +
+                caches +
+                memory +
+                gc +
+                "Platform threads: " + threads.getThreadCount() + " live (" + threads.getDaemonThreadCount() +
+                " daemon), peak " + threads.getPeakThreadCount();
+    }
+
+    private static String mb(long bytes) {
+        return bytes < 0 ? "n/a" : bytes / (1024 * 1024) + " MB";
+    }
+}
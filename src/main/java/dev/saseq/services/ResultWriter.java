@@ -0,0 +1,299 @@
+package dev.saseq.services;
+
+import dev.saseq.configs.GuildSnapshot;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.Webhook;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.entities.channel.concrete.ForumChannel;
+import net.dv8tion.jda.api.entities.channel.concrete.ThreadChannel;
+import net.dv8tion.jda.api.entities.channel.forums.ForumTag;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Renders tool results into a single pre-sized buffer. Entities are appended field by field instead of going through
+ * {@code String.format}, intermediate per-line strings and {@code String.join}, so a result is materialized once.
+ * Free text placed inside code blocks is escaped so it cannot close the block early.
+ */
+public final class ResultWriter {
+
+    private static final int MESSAGE_OVERHEAD = 96;
+    private static final int ENTRY_ESTIMATE = 96;
+    private static final char ZERO_WIDTH_SPACE = '\u200B';
+
+    private final StringBuilder out;
+
+    private ResultWriter(int capacity) {
+        this.out = new StringBuilder(capacity);
+    }
+
+    /**
+     * @param entries Number of entries the result will contain, used to pre-size the buffer.
+     */
+    public static ResultWriter forEntries(int entries) {
+        return new ResultWriter(64 + entries * ENTRY_ESTIMATE);
+    }
+
+    /**
+     * Creates a writer sized for the given messages, estimated from their content lengths.
+     */
+    public static ResultWriter forMessages(List<Message> messages) {
+        int capacity = 64;
+        for (Message message : messages) {
+            capacity += MESSAGE_OVERHEAD + message.getContentRaw().length();
+        }
+        return new ResultWriter(capacity);
+    }
+
+    public ResultWriter append(String text) {
+        out.append(text);
+        return this;
+    }
+
+    public ResultWriter append(long value) {
+        out.append(value);
+        return this;
+    }
+
+    public ResultWriter append(char c) {
+        out.append(c);
+        return this;
+    }
+
+    /**
+     * Appends a message as {@code - (ID: id) **[author]** `timestamp`: ```content```}, followed by its attachments.
+     */
+    public ResultWriter message(Message message) {
+        out.append("- (ID: ").append(message.getId()).append(") **[").append(message.getAuthor().getName()).append("]** `");
+        out.append(message.getTimeCreated()).append("`: ");
+        codeBlock(message.getContentDisplay());
+        List<Message.Attachment> attachments = message.getAttachments();
+        for (int i = 0; i < attachments.size(); i++) {
+            Message.Attachment attachment = attachments.get(i);
+            out.append(i == 0 ? " Attachments: " : ", ")
+                    .append(attachment.getFileName()).append(" (ID: ").append(attachment.getId())
+                    .append(", ").append(attachment.getSize()).append(" bytes)");
+        }
+        return this;
+    }
+
+    /**
+     * Appends one line per message, separated by newlines.
+     */
+    public ResultWriter messages(List<Message> messages) {
+        for (int i = 0; i < messages.size(); i++) {
+            if (i > 0) {
+                out.append('\n');
+            }
+            message(messages.get(i));
+        }
+        return this;
+    }
+
+    /**
+     * Appends one line per item, separated by newlines.
+     *
+     * @param line Appends a single item, e.g. {@code ResultWriter::channel}.
+     */
+    public <T> ResultWriter lines(List<T> items, BiConsumer<ResultWriter, T> line) {
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                out.append('\n');
+            }
+            line.accept(this, items.get(i));
+        }
+        return this;
+    }
+
+    /**
+     * Appends a channel as {@code - TYPE channel: name (ID: id)}.
+     */
+    public ResultWriter channel(GuildChannel channel) {
+        return channel(channel.getType(), channel.getName(), channel.getId());
+    }
+
+    /**
+     * Appends a channel of a {@link GuildSnapshot} like {@link #channel(GuildChannel)}.
+     */
+    public ResultWriter channel(GuildSnapshot.ChannelEntry channel) {
+        return channel(channel.type(), channel.name(), channel.id());
+    }
+
+    private ResultWriter channel(ChannelType type, String name, String id) {
+        out.append("- ").append(type.name()).append(" channel: ").append(name).append(" (ID: ").append(id).append(')');
+        return this;
+    }
+
+    /**
+     * Appends a forum channel as {@code - name (ID: id) - topic}.
+     */
+    public ResultWriter forum(ForumChannel forum) {
+        return forum(forum.getName(), forum.getId(), forum.getTopic());
+    }
+
+    /**
+     * Appends a forum channel of a {@link GuildSnapshot} like {@link #forum(ForumChannel)}.
+     */
+    public ResultWriter forum(GuildSnapshot.ChannelEntry forum) {
+        return forum(forum.name(), forum.id(), forum.topic());
+    }
+
+    private ResultWriter forum(String name, String id, String topic) {
+        out.append("- ").append(name).append(" (ID: ").append(id).append(')');
+        if (topic != null && !topic.isEmpty()) {
+            out.append(" - ").append(topic);
+        }
+        return this;
+    }
+
+    /**
+     * Appends a forum tag as {@code - name}, marked if only moderators can apply it.
+     */
+    public ResultWriter forumTag(ForumTag tag) {
+        return forumTag(tag.getName(), tag.isModerated());
+    }
+
+    /**
+     * Appends a forum tag of a {@link GuildSnapshot} like {@link #forumTag(ForumTag)}.
+     */
+    public ResultWriter forumTag(GuildSnapshot.TagEntry tag) {
+        return forumTag(tag.name(), tag.moderated());
+    }
+
+    private ResultWriter forumTag(String name, boolean moderated) {
+        out.append("- ").append(name);
+        if (moderated) {
+            out.append(" (moderated)");
+        }
+        return this;
+    }
+
+    /**
+     * Appends a role as {@code - name (ID: id) color: #rrggbb} with its hoisted, mentionable and managed flags.
+     */
+    public ResultWriter role(Role role) {
+        return role(role.getName(), role.getId(), role.getColorRaw(), role.isHoisted(), role.isMentionable(), role.isManaged());
+    }
+
+    /**
+     * Appends a role of a {@link GuildSnapshot} like {@link #role(Role)}.
+     */
+    public ResultWriter role(GuildSnapshot.RoleEntry role) {
+        return role(role.name(), role.id(), role.colorRaw(), role.hoisted(), role.mentionable(), role.managed());
+    }
+
+    private ResultWriter role(String name, String id, int colorRaw, boolean hoisted, boolean mentionable, boolean managed) {
+        out.append("- ").append(name).append(" (ID: ").append(id).append(')');
+        if (colorRaw != Role.DEFAULT_COLOR_RAW) {
+            String hex = Integer.toHexString(colorRaw & 0xFFFFFF);
+            out.append(" color: #");
+            for (int i = hex.length(); i < 6; i++) {
+                out.append('0');
+            }
+            out.append(hex);
+        }
+        if (hoisted) {
+            out.append(" [HOISTED]");
+        }
+        if (mentionable) {
+            out.append(" [MENTIONABLE]");
+        }
+        if (managed) {
+            out.append(" [MANAGED]");
+        }
+        return this;
+    }
+
+    /**
+     * Appends a thread as {@code - name (ID: id) in parent} with its archived, locked and pinned flags.
+     */
+    public ResultWriter thread(ThreadChannel thread) {
+        return thread(thread.getName(), thread.getId(), thread.getParentChannel().getName(),
+                thread.isArchived(), thread.isLocked(), thread.isPinned());
+    }
+
+    /**
+     * Appends a thread of a {@link GuildSnapshot} like {@link #thread(ThreadChannel)}.
+     */
+    public ResultWriter thread(GuildSnapshot.ThreadEntry thread, String parentName) {
+        return thread(thread.name(), thread.id(), parentName, thread.archived(), thread.locked(), thread.pinned());
+    }
+
+    /**
+     * Appends a forum post like {@link #thread(ThreadChannel)}, without the forum it is in.
+     */
+    public ResultWriter forumPost(ThreadChannel post) {
+        return thread(post.getName(), post.getId(), null, post.isArchived(), post.isLocked(), post.isPinned());
+    }
+
+    /**
+     * Appends a forum post of a {@link GuildSnapshot} like {@link #forumPost(ThreadChannel)}.
+     */
+    public ResultWriter forumPost(GuildSnapshot.ThreadEntry post) {
+        return thread(post.name(), post.id(), null, post.archived(), post.locked(), post.pinned());
+    }
+
+    private ResultWriter thread(String name, String id, String parentName, boolean archived, boolean locked, boolean pinned) {
+        out.append("- ").append(name).append(" (ID: ").append(id).append(')');
+        if (parentName != null) {
+            out.append(" in ").append(parentName);
+        }
+        if (archived) {
+            out.append(" [ARCHIVED]");
+        }
+        if (locked) {
+            out.append(" [LOCKED]");
+        }
+        if (pinned) {
+            out.append(" [PINNED]");
+        }
+        return this;
+    }
+
+    /**
+     * Appends a webhook as {@code - (ID: id) **[name]** ```url```}.
+     */
+    public ResultWriter webhook(Webhook webhook) {
+        out.append("- (ID: ").append(webhook.getId()).append(") **[").append(webhook.getName()).append("]** ");
+        codeBlock(webhook.getUrl());
+        return this;
+    }
+
+    /**
+     * Appends text inside a {@code ```} block, breaking up backtick runs in the text that would end the block.
+     */
+    public ResultWriter codeBlock(String text) {
+        out.append("```");
+        if (!text.isEmpty() && text.charAt(0) == '`') {
+            // A leading backtick would merge with the opening fence
+            out.append(ZERO_WIDTH_SPACE);
+        }
+        int backticks = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '`') {
+                if (++backticks == 3) {
+                    out.append(ZERO_WIDTH_SPACE);
+                    backticks = 1;
+                }
+            } else {
+                backticks = 0;
+            }
+            out.append(c);
+        }
+        if (backticks > 0) {
+            // A trailing backtick would merge with the closing fence
+            out.append(ZERO_WIDTH_SPACE);
+        }
+        out.append("```");
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
@@ -0,0 +1,449 @@
+package dev.saseq.services;
+
+import dev.saseq.configs.BotContext;
+import dev.saseq.configs.CallDeadline;
+import dev.saseq.configs.GuildSnapshot;
+import dev.saseq.configs.GuildSnapshotStore;
+import dev.saseq.configs.LazyJDAProvider;
+import dev.saseq.configs.PermissionGuard;
+import dev.saseq.configs.PriorityLanes;
+import dev.saseq.configs.RequiresIntents;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.managers.RoleManager;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.requests.restaction.RoleAction;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.Color;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+@Service
+public class RoleService {
+
+    private static final int RETAINED_FINISHED_OPERATIONS = 20;
+
+    private final LazyJDAProvider jdaProvider;
+    private final PermissionGuard permissionGuard;
+    private final GuildSnapshotStore guildSnapshots;
+    private final PriorityLanes lanes;
+    private final int pipelineDepth;
+    private final long maxYieldMs;
+    private final Map<String, BulkRoleOperation> operations = new ConcurrentHashMap<>();
+    private final AtomicInteger operationIds = new AtomicInteger();
+
+    @Value("${DISCORD_GUILD_ID:}")
+    private String defaultGuildId;
+
+    /**
+     * @param pipelineDepth Member updates of a bulk operation kept in flight at once. They share the guild's member
+     *                      rate-limit bucket, so a small window keeps the bucket busy without piling up queued requests.
+     * @param maxYieldMs    Longest a member update waits for interactive calls to finish before it is sent anyway,
+     *                      shared with background jobs.
+     */
+    public RoleService(LazyJDAProvider jdaProvider,
+                       PermissionGuard permissionGuard,
+                       GuildSnapshotStore guildSnapshots,
+                       PriorityLanes lanes,
+                       @Value("${discord.mcp.roles.pipeline-depth:5}") int pipelineDepth,
+                       @Value("${discord.mcp.jobs.max-yield-ms:2000}") long maxYieldMs) {
+        this.jdaProvider = jdaProvider;
+        this.permissionGuard = permissionGuard;
+        this.guildSnapshots = guildSnapshots;
+        this.lanes = lanes;
+        this.pipelineDepth = Math.max(1, pipelineDepth);
+        this.maxYieldMs = maxYieldMs;
+    }
+
+    private String resolveGuildId(String guildId) {
+        if ((guildId == null || guildId.isEmpty()) && defaultGuildId != null && !defaultGuildId.isEmpty()) {
+            return defaultGuildId;
+        }
+        return guildId;
+    }
+
+    /**
+     * Lists all roles of a Discord server, highest first.
+     *
+     * @param guildId Optional ID of the Discord server. If not provided, the default server will be used.
+     * @return A formatted list of roles with their IDs, colors and flags.
+     */
+    @Tool(name = "list_roles", description = "List all roles in a server")
+    public String listRoles(@ToolParam(description = "Discord server ID", required = false) String guildId) {
+        GuildSnapshot.GuildEntry snapshot = guildSnapshots.getGuildIfNotReady(resolveGuildId(guildId));
+        if (snapshot != null) {
+            return ResultWriter.forEntries(snapshot.roles().size()).append(guildSnapshots.staleNotice())
+                    .append("Roles in ").append(snapshot.name()).append(" (").append(snapshot.roles().size()).append(" roles):\n")
+                    .lines(snapshot.roles(), ResultWriter::role)
+                    .append('\n')
+                    .toString();
+        }
+
+        Guild guild = getGuild(guildId);
+        List<Role> roles = guild.getRoles();
+        return ResultWriter.forEntries(roles.size())
+                .append("Roles in ").append(guild.getName()).append(" (").append(roles.size()).append(" roles):\n")
+                .lines(roles, ResultWriter::role)
+                .append('\n')
+                .toString();
+    }
+
+    /**
+     * Creates a new role in a Discord server.
+     *
+     * @param guildId     Optional ID of the Discord server. If not provided, the default server will be used.
+     * @param name        The name of the role.
+     * @param color       Optional color as hex (e.g. #3498db).
+     * @param hoisted     Optional "true" to display role members separately.
+     * @param mentionable Optional "true" to allow anyone to mention the role.
+     * @param permissions Optional comma-separated permission names (e.g. MESSAGE_SEND,VIEW_CHANNEL).
+     * @return A confirmation message with the ID of the created role.
+     */
+    @Tool(name = "create_role", description = "Create a new role in a server")
+    public String createRole(@ToolParam(description = "Discord server ID", required = false) String guildId,
+                             @ToolParam(description = "Role name") String name,
+                             @ToolParam(description = "Color as hex, e.g. #3498db", required = false) String color,
+                             @ToolParam(description = "Display role members separately (true/false)", required = false) String hoisted,
+                             @ToolParam(description = "Allow anyone to mention the role (true/false)", required = false) String mentionable,
+                             @ToolParam(description = "Comma-separated permission names, e.g. MESSAGE_SEND,VIEW_CHANNEL", required = false) String permissions) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("name cannot be null");
+        }
+        Guild guild = getGuild(guildId);
+        permissionGuard.require(guild, Permission.MANAGE_ROLES);
+        RoleAction action = guild.createRole().setName(name)
+                .setHoisted(Boolean.parseBoolean(hoisted))
+                .setMentionable(Boolean.parseBoolean(mentionable));
+        if (color != null && !color.isEmpty()) {
+            action.setColor(parseColor(color));
+        }
+        if (permissions != null && !permissions.isEmpty()) {
+            action.setPermissions(parsePermissions(permissions));
+        }
+        Role role = CallDeadline.complete(action);
+        return "Created role " + role.getName() + " (ID: " + role.getId() + ")";
+    }
+
+    /**
+     * Edits an existing role. Only the given properties are changed.
+     *
+     * @param guildId     Optional ID of the Discord server. If not provided, the default server will be used.
+     * @param roleId      The ID of the role to edit.
+     * @param name        Optional new name.
+     * @param color       Optional new color as hex.
+     * @param hoisted     Optional "true" or "false" to change whether role members are displayed separately.
+     * @param mentionable Optional "true" or "false" to change whether anyone can mention the role.
+     * @param permissions Optional comma-separated permission names replacing the current permissions.
+     * @return A confirmation message with the name of the edited role.
+     */
+    @Tool(name = "edit_role", description = "Edit the name, color, flags or permissions of a role")
+    public String editRole(@ToolParam(description = "Discord server ID", required = false) String guildId,
+                           @ToolParam(description = "Role ID") String roleId,
+                           @ToolParam(description = "New role name", required = false) String name,
+                           @ToolParam(description = "New color as hex, e.g. #3498db", required = false) String color,
+                           @ToolParam(description = "Display role members separately (true/false)", required = false) String hoisted,
+                           @ToolParam(description = "Allow anyone to mention the role (true/false)", required = false) String mentionable,
+                           @ToolParam(description = "Comma-separated permission names replacing the current ones", required = false) String permissions) {
+        if (roleId == null || roleId.isEmpty()) {
+            throw new IllegalArgumentException("roleId cannot be null");
+        }
+        Guild guild = getGuild(guildId);
+        Role role = guild.getRoleById(roleId);
+        if (role == null) {
+            throw new IllegalArgumentException("Role not found by roleId");
+        }
+        permissionGuard.require(guild, Permission.MANAGE_ROLES);
+        RoleManager manager = role.getManager();
+        if (name != null && !name.isEmpty()) {
+            manager.setName(name);
+        }
+        if (color != null && !color.isEmpty()) {
+            manager.setColor(parseColor(color));
+        }
+        if (hoisted != null && !hoisted.isEmpty()) {
+            manager.setHoisted(Boolean.parseBoolean(hoisted));
+        }
+        if (mentionable != null && !mentionable.isEmpty()) {
+            manager.setMentionable(Boolean.parseBoolean(mentionable));
+        }
+        if (permissions != null && !permissions.isEmpty()) {
+            manager.setPermissions(parsePermissions(permissions));
+        }
+        CallDeadline.complete(manager);
+        return "Edited role " + role.getName() + " (ID: " + role.getId() + ")";
+    }
+
+    /**
+     * Starts adding and/or removing roles for all members matching the filters. Each member gets a single update
+     * combining the added and removed roles, and members that already match the target state are skipped.
+     * Updates are pipelined in the background; use {@code bulk_roles_status} to follow progress.
+     *
+     * @param guildId       Optional ID of the Discord server. If not provided, the default server will be used.
+     * @param addRoleIds    Optional comma-separated role IDs to add.
+     * @param removeRoleIds Optional comma-separated role IDs to remove.
+     * @param hasRoleIds    Optional comma-separated role IDs the members must all have.
+     * @param joinedAfter   Optional date (YYYY-MM-DD); only members who joined on or after it.
+     * @param joinedBefore  Optional date (YYYY-MM-DD); only members who joined before it.
+     * @param namePattern   Optional regular expression matched against the username and nickname.
+     * @param dryRun        Optional "true" to only count the matching members.
+     * @return The operation ID and the number of members to update, or the count for a dry run.
+     */
+    @RequiresIntents(GatewayIntent.GUILD_MEMBERS)
+    @Tool(name = "bulk_modify_roles", description = "Add and/or remove roles for all members matching filters (join date, roles, name pattern)")
+    public String bulkModifyRoles(@ToolParam(description = "Discord server ID", required = false) String guildId,
+                                  @ToolParam(description = "Comma-separated role IDs to add", required = false) String addRoleIds,
+                                  @ToolParam(description = "Comma-separated role IDs to remove", required = false) String removeRoleIds,
+                                  @ToolParam(description = "Only members having all of these comma-separated role IDs", required = false) String hasRoleIds,
+                                  @ToolParam(description = "Only members who joined on or after this date (YYYY-MM-DD)", required = false) String joinedAfter,
+                                  @ToolParam(description = "Only members who joined before this date (YYYY-MM-DD)", required = false) String joinedBefore,
+                                  @ToolParam(description = "Regular expression matched against username and nickname", required = false) String namePattern,
+                                  @ToolParam(description = "Only count matching members (true/false)", required = false) String dryRun) {
+        Guild guild = getGuild(guildId);
+        List<Role> toAdd = parseRoles(guild, addRoleIds);
+        List<Role> toRemove = parseRoles(guild, removeRoleIds);
+        List<Role> required = parseRoles(guild, hasRoleIds);
+        if (toAdd.isEmpty() && toRemove.isEmpty()) {
+            throw new IllegalArgumentException("addRoleIds or removeRoleIds must be provided");
+        }
+        for (Role role : toAdd) {
+            if (!guild.getSelfMember().canInteract(role)) {
+                throw new IllegalArgumentException("Bot cannot assign role " + role.getName() + " (role hierarchy or missing permission)");
+            }
+        }
+        for (Role role : toRemove) {
+            if (!guild.getSelfMember().canInteract(role)) {
+                throw new IllegalArgumentException("Bot cannot remove role " + role.getName() + " (role hierarchy or missing permission)");
+            }
+        }
+        OffsetDateTime after = parseDate(joinedAfter, "joinedAfter");
+        OffsetDateTime before = parseDate(joinedBefore, "joinedBefore");
+        Pattern pattern;
+        try {
+            pattern = namePattern == null || namePattern.isEmpty() ? null : Pattern.compile(namePattern, Pattern.CASE_INSENSITIVE);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid namePattern: " + e.getDescription());
+        }
+
+        // Loaded per call, members are only cached as far as the member cache policy allows
+        List<Member> members = guild.isLoaded() ? guild.getMembers() : guild.loadMembers().get();
+        List<Member> targets = members.stream()
+                .filter(member -> member.getRoles().containsAll(required))
+                .filter(member -> after == null || !member.getTimeJoined().isBefore(after))
+                .filter(member -> before == null || member.getTimeJoined().isBefore(before))
+                .filter(member -> pattern == null || pattern.matcher(member.getUser().getName()).find()
+                        || (member.getNickname() != null && pattern.matcher(member.getNickname()).find()))
+                // Members already in the target state need no request
+                .filter(member -> !member.getRoles().containsAll(toAdd) || toRemove.stream().anyMatch(member.getRoles()::contains))
+                .toList();
+        if (Boolean.parseBoolean(dryRun) || targets.isEmpty()) {
+            return targets.size() + " of " + members.size() + " members would be updated";
+        }
+
+        permissionGuard.require(guild, Permission.MANAGE_ROLES);
+        String operationId = "roles-" + operationIds.incrementAndGet();
+        BulkRoleOperation operation = new BulkRoleOperation(operationId, guild, targets, toAdd, toRemove);
+        operations.put(operationId, operation);
+        String bot = BotContext.current();
+        Thread.ofVirtual().name(operationId).start(() -> jdaProvider.runInFlight(bot, operation::run));
+        return "Started bulk role update " + operationId + " for " + targets.size() + " members. Use bulk_roles_status to follow progress";
+    }
+
+    /**
+     * Reports the progress of bulk role operations.
+     *
+     * @param operationId Optional operation ID; all operations are listed if omitted.
+     * @return Progress, throughput and state of the operations.
+     */
+    @Tool(name = "bulk_roles_status", description = "Get the progress of bulk role operations")
+    public String bulkRolesStatus(@ToolParam(description = "Operation ID (optional, lists all)", required = false) String operationId) {
+        if (operationId != null && !operationId.isEmpty()) {
+            return getOperation(operationId).describe();
+        }
+        if (operations.isEmpty()) {
+            return "No bulk role operations";
+        }
+        return operations.values().stream().map(BulkRoleOperation::describe).collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Cancels a running bulk role operation. Updates already sent are not reverted.
+     *
+     * @param operationId The operation ID.
+     * @return The state of the operation after cancelling.
+     */
+    @Tool(name = "cancel_bulk_roles", description = "Cancel a running bulk role operation")
+    public String cancelBulkRoles(@ToolParam(description = "Operation ID") String operationId) {
+        BulkRoleOperation operation = getOperation(operationId);
+        operation.cancelled = true;
+        return "Cancelling " + operation.describe();
+    }
+
+    private void trimFinishedOperations() {
+        List<BulkRoleOperation> finished = operations.values().stream()
+                .filter(operation -> operation.finishedAt > 0)
+                .sorted(Comparator.comparingLong(operation -> operation.finishedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - RETAINED_FINISHED_OPERATIONS; i++) {
+            operations.remove(finished.get(i).id);
+        }
+    }
+
+    private BulkRoleOperation getOperation(String operationId) {
+        if (operationId == null || operationId.isEmpty()) {
+            throw new IllegalArgumentException("operationId cannot be null");
+        }
+        BulkRoleOperation operation = operations.get(operationId);
+        if (operation == null) {
+            throw new IllegalArgumentException("Operation not found by operationId");
+        }
+        return operation;
+    }
+
+    private Guild getGuild(String guildId) {
+        guildId = resolveGuildId(guildId);
+        if (guildId == null || guildId.isEmpty()) {
+            throw new IllegalArgumentException("guildId cannot be null");
+        }
+        Guild guild = jdaProvider.getJDA().getGuildById(guildId);
+        if (guild == null) {
+            throw new IllegalArgumentException("Discord server not found by guildId");
+        }
+        return guild;
+    }
+
+    private static List<Role> parseRoles(Guild guild, String roleIds) {
+        if (roleIds == null || roleIds.isEmpty()) {
+            return List.of();
+        }
+        List<Role> roles = new ArrayList<>();
+        for (String roleId : roleIds.split(",")) {
+            Role role = guild.getRoleById(roleId.trim());
+            if (role == null) {
+                throw new IllegalArgumentException("Role not found by roleId: " + roleId.trim());
+            }
+            roles.add(role);
+        }
+        return roles;
+    }
+
+    private static EnumSet<Permission> parsePermissions(String permissions) {
+        EnumSet<Permission> result = EnumSet.noneOf(Permission.class);
+        for (String permission : permissions.split(",")) {
+            try {
+                result.add(Permission.valueOf(permission.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown permission: " + permission.trim() + ". Available: "
+                        + Arrays.stream(Permission.values()).map(Permission::name).collect(Collectors.joining(", ")));
+            }
+        }
+        return result;
+    }
+
+    private static Color parseColor(String color) {
+        try {
+            return Color.decode(color.startsWith("#") ? color : "#" + color);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid color: " + color);
+        }
+    }
+
+    private static OffsetDateTime parseDate(String date, String name) {
+        if (date == null || date.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date).atStartOfDay().atOffset(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be a date in the format YYYY-MM-DD");
+        }
+    }
+
+    private final class BulkRoleOperation {
+        private final String id;
+        private final Guild guild;
+        private final int total;
+        private volatile List<Member> targets;
+        private final List<Role> toAdd;
+        private final List<Role> toRemove;
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final long startedAt = System.currentTimeMillis();
+        private volatile long finishedAt;
+        private volatile boolean cancelled;
+        private volatile String lastError;
+
+        private BulkRoleOperation(String id, Guild guild, List<Member> targets, List<Role> toAdd, List<Role> toRemove) {
+            this.id = id;
+            this.guild = guild;
+            this.targets = targets;
+            this.total = targets.size();
+            this.toAdd = toAdd;
+            this.toRemove = toRemove;
+        }
+
+        private void run() {
+            Semaphore window = new Semaphore(pipelineDepth);
+            try {
+                for (Member member : targets) {
+                    if (cancelled) {
+                        break;
+                    }
+                    window.acquire();
+                    // One PATCH per member applies additions and removals together, submitted in the bulk lane so
+                    // it yields the guild's member bucket to interactive calls
+                    lanes.runBulk(maxYieldMs, () -> guild.modifyMemberRoles(member, toAdd, toRemove)
+                            .reason("bulk_modify_roles " + id)
+                            .submit()
+                            .whenComplete((result, error) -> {
+                                if (error == null) {
+                                    succeeded.incrementAndGet();
+                                } else {
+                                    failed.incrementAndGet();
+                                    lastError = member.getUser().getName() + ": " + error.getMessage();
+                                }
+                                window.release();
+                            }));
+                }
+                window.acquire(pipelineDepth);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            } finally {
+                finishedAt = System.currentTimeMillis();
+                // Only the progress of a finished operation is reported, its members are not needed anymore
+                targets = List.of();
+                trimFinishedOperations();
+            }
+        }
+
+        private String describe() {
+            int done = succeeded.get() + failed.get();
+            long elapsedMs = Math.max(1, (finishedAt == 0 ? System.currentTimeMillis() : finishedAt) - startedAt);
+            String state = finishedAt == 0 ? (cancelled ? "cancelling" : "running") : (cancelled ? "cancelled" : "finished");
+            return id + ": " + state + ", " + done + "/" + total + " members (" + succeeded.get() + " updated, "
+                    + failed.get() + " failed), " + String.format("%.1f", done * 1000.0 / elapsedMs) + " members/s"
+                    + (lastError == null ? "" : ", last error: " + lastError);
+        }
+    }
+}
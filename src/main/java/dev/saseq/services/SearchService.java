@@ -0,0 +1,194 @@
+package dev.saseq.services;
+
+import dev.saseq.configs.CallDeadline;
+import dev.saseq.configs.LazyJDAProvider;
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+import io.modelcontextprotocol.spec.McpSchema;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageHistory;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import net.dv8tion.jda.api.utils.TimeUtil;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+@Service
+public class SearchService {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final LazyJDAProvider jdaProvider;
+    private final Semaphore scanPermits;
+
+    @Value("${DISCORD_GUILD_ID:}")
+    private String defaultGuildId;
+
+    /**
+     * @param concurrency Channels scanned in parallel across all searches. Message history has one rate-limit bucket
+     *                    per channel, so each channel is paged sequentially and this bounds the number of buckets in use.
+     */
+    public SearchService(LazyJDAProvider jdaProvider,
+                         @Value("${discord.mcp.search.concurrency:8}") int concurrency) {
+        this.jdaProvider = jdaProvider;
+        this.scanPermits = new Semaphore(Math.max(1, concurrency));
+    }
+
+    private String resolveGuildId(String guildId) {
+        if ((guildId == null || guildId.isEmpty()) && defaultGuildId != null && !defaultGuildId.isEmpty()) {
+            return defaultGuildId;
+        }
+        return guildId;
+    }
+
+    /**
+     * Searches the recent history of all readable text channels, threads and forum posts of a server in parallel.
+     * Each channel is scanned back to the time window cutoff, and the search stops once enough matches are found.
+     * Matches are also sent to the client as logging notifications while the search runs.
+     *
+     * @param guildId         Optional ID of the Discord server. If not provided, the default server will be used.
+     * @param query           Case-insensitive text to search for in message content.
+     * @param maxResults      Optional number of matches after which the search stops (default is 20).
+     * @param hours           Optional time window in hours to search back (default is 24).
+     * @param maxPerChannel   Optional number of messages to scan per channel at most (default is 500).
+     * @param toolContext     The MCP tool context, used to stream matches to the client.
+     * @return The matches, newest first.
+     */
+    @Tool(name = "search_guild_live", description = "Search recent messages across all readable channels, threads and forum posts of a server")
+    public String searchGuildLive(@ToolParam(description = "Discord server ID", required = false) String guildId,
+                                  @ToolParam(description = "Text to search for (case-insensitive)") String query,
+                                  @ToolParam(description = "Stop after this many matches (default 20)", required = false) String maxResults,
+                                  @ToolParam(description = "Time window in hours to search back (default 24)", required = false) String hours,
+                                  @ToolParam(description = "Maximum messages to scan per channel (default 500)", required = false) String maxPerChannel,
+                                  ToolContext toolContext) {
+        guildId = resolveGuildId(guildId);
+        if (guildId == null || guildId.isEmpty()) {
+            throw new IllegalArgumentException("guildId cannot be null");
+        }
+        if (query == null || query.isEmpty()) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+        int limit = maxResults == null || maxResults.isEmpty() ? 20 : Integer.parseInt(maxResults);
+        long windowHours = hours == null || hours.isEmpty() ? 24 : Long.parseLong(hours);
+        int scanLimit = maxPerChannel == null || maxPerChannel.isEmpty() ? 500 : Integer.parseInt(maxPerChannel);
+        if (limit < 1 || windowHours < 1 || scanLimit < 1) {
+            throw new IllegalArgumentException("maxResults, hours and maxPerChannel must be positive");
+        }
+
+        Guild guild = jdaProvider.getJDA().getGuildById(guildId);
+        if (guild == null) {
+            throw new IllegalArgumentException("Discord server not found by guildId");
+        }
+        // Snowflakes embed their creation time, so the cutoff can be compared against message and channel IDs directly
+        long cutoffId = TimeUtil.getDiscordTimestamp(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(windowHours));
+        Member self = guild.getSelfMember();
+        List<GuildMessageChannel> channels = Stream.concat(guild.getTextChannels().stream(), guild.getThreadChannels().stream())
+                .map(GuildMessageChannel.class::cast)
+                .filter(channel -> self.hasPermission(channel, Permission.VIEW_CHANNEL, Permission.MESSAGE_HISTORY))
+                .filter(channel -> channel.getLatestMessageIdLong() >= cutoffId)
+                .toList();
+
+        String needle = query.toLowerCase(Locale.ROOT);
+        McpSyncServerExchange exchange = toolContext == null ? null : McpToolUtils.getMcpExchange(toolContext).orElse(null);
+        ConcurrentLinkedQueue<Message> matches = new ConcurrentLinkedQueue<>();
+        AtomicInteger found = new AtomicInteger();
+        List<String> failures = new ArrayList<>();
+        // Scans run on their own threads, so the invocation's deadline is handed over explicitly
+        long deadline = CallDeadline.current();
+        try (ExecutorService scans = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(channels.size());
+            for (GuildMessageChannel channel : channels) {
+                futures.add(scans.submit(() -> {
+                    scanChannel(channel, needle, cutoffId, scanLimit, limit, found, matches, exchange, deadline);
+                    return null;
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (Exception e) {
+                    failures.add(channels.get(i).getName());
+                }
+            }
+        }
+
+        List<Message> results = matches.stream()
+                .sorted(Comparator.comparingLong(Message::getIdLong).reversed())
+                .limit(limit)
+                .toList();
+        ResultWriter result = ResultWriter.forMessages(results)
+                .append("**Found ").append(results.size()).append(" messages in ").append(channels.size())
+                .append(" channels active in the last ").append(windowHours).append(" hours:** \n");
+        for (Message message : results) {
+            result.append("#").append(message.getChannel().getName()).append(' ').message(message).append('\n');
+        }
+        if (!failures.isEmpty()) {
+            result.append("Could not scan: ").append(String.join(", ", failures));
+        }
+        return result.toString();
+    }
+
+    private void scanChannel(GuildMessageChannel channel, String needle, long cutoffId, int scanLimit, int limit,
+                             AtomicInteger found, ConcurrentLinkedQueue<Message> matches,
+                             McpSyncServerExchange exchange, long deadline) throws InterruptedException {
+        if (found.get() >= limit) {
+            return;
+        }
+        scanPermits.acquire();
+        try {
+            MessageHistory history = channel.getHistory();
+            int scanned = 0;
+            while (scanned < scanLimit && found.get() < limit) {
+                List<Message> page = CallDeadline.complete(history.retrievePast(Math.min(PAGE_SIZE, scanLimit - scanned)), deadline);
+                for (Message message : page) {
+                    if (message.getIdLong() < cutoffId) {
+                        return;
+                    }
+                    if (message.getContentRaw().toLowerCase(Locale.ROOT).contains(needle)) {
+                        matches.add(message);
+                        if (found.incrementAndGet() <= limit) {
+                            stream(exchange, message);
+                        }
+                    }
+                }
+                if (page.size() < PAGE_SIZE) {
+                    return;
+                }
+                scanned += page.size();
+            }
+        } finally {
+            scanPermits.release();
+        }
+    }
+
+    private static void stream(McpSyncServerExchange exchange, Message message) {
+        if (exchange == null) {
+            return;
+        }
+        String line = ResultWriter.forEntries(1)
+                .append("#").append(message.getChannel().getName()).append(' ').message(message).toString();
+        exchange.loggingNotification(McpSchema.LoggingMessageNotification.builder()
+                .level(McpSchema.LoggingLevel.INFO)
+                .logger("search_guild_live")
+                .data(line)
+                .build());
+    }
+}
@@ -1,14 +1,22 @@
 package dev.saseq.services;
 
+import dev.saseq.configs.CallDeadline;
+import dev.saseq.configs.ChannelWriteScheduler;
+import dev.saseq.configs.GuildSnapshot;
+import dev.saseq.configs.GuildSnapshotStore;
 import dev.saseq.configs.LazyJDAProvider;
+import dev.saseq.configs.PermissionGuard;
+import dev.saseq.configs.RequestCoalescer;
+import dev.saseq.configs.RequiresIntents;
 import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.entities.channel.concrete.ThreadChannel;
 import net.dv8tion.jda.api.entities.channel.forums.ForumTag;
-import net.dv8tion.jda.api.entities.channel.unions.IThreadContainerUnion;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,12 +29,21 @@ import java.util.stream.Collectors;
 public class ThreadService {
 
     private final LazyJDAProvider jdaProvider;
+    private final RequestCoalescer requestCoalescer;
+    private final ChannelWriteScheduler writeScheduler;
+    private final PermissionGuard permissionGuard;
+    private final GuildSnapshotStore guildSnapshots;
 
     @Value("${DISCORD_GUILD_ID:}")
     private String defaultGuildId;
 
-    public ThreadService(LazyJDAProvider jdaProvider) {
+    public ThreadService(LazyJDAProvider jdaProvider, RequestCoalescer requestCoalescer, ChannelWriteScheduler writeScheduler,
+                         PermissionGuard permissionGuard, GuildSnapshotStore guildSnapshots) {
         this.jdaProvider = jdaProvider;
+        this.requestCoalescer = requestCoalescer;
+        this.writeScheduler = writeScheduler;
+        this.permissionGuard = permissionGuard;
+        this.guildSnapshots = guildSnapshots;
     }
 
     private String resolveGuildId(String guildId) {
@@ -64,11 +81,11 @@ public class ThreadService {
 
         ThreadChannel thread;
         if (messageId != null && !messageId.isEmpty()) {
-            Message message = channel.retrieveMessageById(messageId).complete();
+            Message message = CallDeadline.complete(channel.retrieveMessageById(messageId));
             if (message == null) {
                 throw new IllegalArgumentException("Message not found by messageId");
             }
-            thread = message.createThreadChannel(threadName).complete();
+            thread = CallDeadline.complete(message.createThreadChannel(threadName));
         } else {
             var action = channel.createThreadChannel(threadName);
             if (autoArchive != null && !autoArchive.isEmpty()) {
@@ -80,11 +97,10 @@ public class ThreadService {
                     // Invalid duration, use default
                 }
             }
-            thread = action.complete();
+            thread = CallDeadline.complete(action);
         }
 
-        return "Created thread successfully!\n" +
-               "Thread ID: " + thread.getId() + "\n" +
+        return "Created thread successfully (ID: " + thread.getId() + ")\n" +
                "Thread Name: " + thread.getName() + "\n" +
                "Parent Channel: " + channel.getName();
     }
@@ -111,8 +127,9 @@ public class ThreadService {
             throw new IllegalArgumentException("Thread not found by threadId");
         }
 
-        Message sentMessage = thread.sendMessage(message).complete();
-        return "Message sent to thread '" + thread.getName() + "'\n" +
+        Message sentMessage = writeScheduler.submit(threadId, () -> CallDeadline.complete(thread.sendMessage(message)));
+        requestCoalescer.invalidate("messages:" + threadId + ":");
+        return "Message sent to thread '" + thread.getName() + "' (ID: " + sentMessage.getId() + ")\n" +
                "Message link: " + sentMessage.getJumpUrl();
     }
 
@@ -139,7 +156,11 @@ public class ThreadService {
         }
 
         boolean shouldArchive = Boolean.parseBoolean(archive);
-        thread.getManager().setArchived(shouldArchive).queue();
+        // The creator of an unlocked thread may archive it, anyone else needs Manage Threads
+        if (thread.isLocked() || thread.getOwnerIdLong() != thread.getJDA().getSelfUser().getIdLong()) {
+            permissionGuard.require(thread, Permission.MANAGE_THREADS);
+        }
+        CallDeadline.complete(thread.getManager().setArchived(shouldArchive));
 
         return (shouldArchive ? "Archived" : "Unarchived") + " thread: " + thread.getName();
     }
@@ -167,7 +188,8 @@ public class ThreadService {
         }
 
         boolean shouldLock = Boolean.parseBoolean(lock);
-        thread.getManager().setLocked(shouldLock).queue();
+        permissionGuard.require(thread, Permission.MANAGE_THREADS);
+        CallDeadline.complete(thread.getManager().setLocked(shouldLock));
 
         return (shouldLock ? "Locked" : "Unlocked") + " thread: " + thread.getName();
     }
@@ -195,7 +217,8 @@ public class ThreadService {
         }
 
         boolean shouldPin = Boolean.parseBoolean(pin);
-        thread.getManager().setPinned(shouldPin).queue();
+        permissionGuard.require(thread, Permission.MANAGE_THREADS);
+        CallDeadline.complete(thread.getManager().setPinned(shouldPin));
 
         return (shouldPin ? "Pinned" : "Unpinned") + " thread: " + thread.getName();
     }
@@ -227,7 +250,8 @@ public class ThreadService {
             throw new IllegalArgumentException("User not found by userId");
         }
 
-        thread.addThreadMember(user).queue();
+        permissionGuard.require(thread, Permission.MESSAGE_SEND_IN_THREADS);
+        CallDeadline.complete(thread.addThreadMember(user));
         return "Added user " + user.getName() + " to thread: " + thread.getName();
     }
 
@@ -258,7 +282,8 @@ public class ThreadService {
             throw new IllegalArgumentException("User not found by userId");
         }
 
-        thread.removeThreadMember(user).queue();
+        permissionGuard.require(thread, Permission.MANAGE_THREADS);
+        CallDeadline.complete(thread.removeThreadMember(user));
         return "Removed user " + user.getName() + " from thread: " + thread.getName();
     }
 
@@ -275,6 +300,17 @@ public class ThreadService {
             throw new IllegalArgumentException("guildId cannot be null");
         }
 
+        GuildSnapshot.GuildEntry snapshot = guildSnapshots.getGuildIfNotReady(guildId);
+        if (snapshot != null && !snapshot.threads().isEmpty()) {
+            ResultWriter result = ResultWriter.forEntries(snapshot.threads().size()).append(guildSnapshots.staleNotice());
+            result.append("Active threads in ").append(snapshot.name()).append(" (").append(snapshot.threads().size()).append(" threads):\n");
+            for (GuildSnapshot.ThreadEntry thread : snapshot.threads()) {
+                GuildSnapshot.ChannelEntry parent = snapshot.channel(thread.parentId());
+                result.thread(thread, parent == null ? thread.parentId() : parent.name()).append('\n');
+            }
+            return result.toString();
+        }
+
         Guild guild = jdaProvider.getJDA().getGuildById(guildId);
         if (guild == null) {
             throw new IllegalArgumentException("Discord server not found by guildId");
@@ -285,26 +321,10 @@ public class ThreadService {
             return "No active threads found in server: " + guild.getName();
         }
 
-        StringBuilder result = new StringBuilder();
+        ResultWriter result = ResultWriter.forEntries(threads.size());
         result.append("Active threads in ").append(guild.getName()).append(" (").append(threads.size()).append(" threads):\n");
-        
         for (ThreadChannel thread : threads) {
-            IThreadContainerUnion parent = thread.getParentChannel();
-            result.append("- ").append(thread.getName())
-                  .append(" (ID: ").append(thread.getId()).append(")")
-                  .append(" in ").append(parent.getName());
-            
-            if (thread.isArchived()) {
-                result.append(" [ARCHIVED]");
-            }
-            if (thread.isLocked()) {
-                result.append(" [LOCKED]");
-            }
-            if (thread.isPinned()) {
-                result.append(" [PINNED]");
-            }
-            
-            result.append("\n");
+            result.thread(thread).append('\n');
         }
 
         return result.toString();
@@ -316,6 +336,7 @@ public class ThreadService {
      * @param threadId The ID of the thread.
      * @return Detailed information about the thread.
      */
+    @RequiresIntents(cache = CacheFlag.FORUM_TAGS)
     @Tool(name = "get_thread_info", description = "Get detailed information about a thread")
     public String getThreadInfo(@ToolParam(description = "Thread ID") String threadId) {
         if (threadId == null || threadId.isEmpty()) {
@@ -383,20 +404,18 @@ public class ThreadService {
             }
         }
 
-        List<Message> messages = thread.getHistory().retrievePast(limit).complete();
+        int historyLimit = limit;
+        List<Message> messages = requestCoalescer.complete("messages:" + threadId + ":" + historyLimit,
+                () -> thread.getHistory().retrievePast(historyLimit));
         if (messages.isEmpty()) {
             return "No messages found in thread: " + thread.getName();
         }
 
-        StringBuilder result = new StringBuilder();
+        ResultWriter result = ResultWriter.forMessages(messages);
         result.append("Retrieved ").append(messages.size()).append(" messages from thread '")
-              .append(thread.getName()).append("':\n\n");
-
+                .append(thread.getName()).append("':\n\n");
         for (Message msg : messages) {
-            result.append("- (ID: ").append(msg.getId()).append(") ")
-                  .append("[").append(msg.getAuthor().getName()).append("] ")
-                  .append("`").append(msg.getTimeCreated()).append("`: ")
-                  .append("```").append(msg.getContentDisplay()).append("```\n");
+            result.message(msg).append('\n');
         }
 
         return result.toString();
@@ -1,30 +1,63 @@
 package dev.saseq.services;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import dev.saseq.configs.CallDeadline;
+import dev.saseq.configs.ChannelWriteScheduler;
+import dev.saseq.configs.DeadlineExceededException;
 import dev.saseq.configs.LazyJDAProvider;
+import dev.saseq.configs.RequiresIntents;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.requests.GatewayIntent;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
 public class UserService {
 
+    private static final List<String> EXPORT_FIELDS = List.of("id", "username", "nickname", "joined", "created", "bot", "roles");
+    private static final JsonFactory JSON = new JsonFactory();
+    /**
+     * Most members a gateway member query by name prefix returns.
+     */
+    private static final int MEMBER_QUERY_LIMIT = 100;
+
     private final LazyJDAProvider jdaProvider;
+    private final ChannelWriteScheduler writeScheduler;
+    private final Path exportDirectory;
 
     @Value("${DISCORD_GUILD_ID:}")
     private String defaultGuildId;
 
-    public UserService(LazyJDAProvider jdaProvider) {
+    public UserService(LazyJDAProvider jdaProvider,
+                       ChannelWriteScheduler writeScheduler,
+                       @Value("${discord.mcp.export.directory:./exports}") String exportDirectory) {
         this.jdaProvider = jdaProvider;
+        this.writeScheduler = writeScheduler;
+        this.exportDirectory = Path.of(exportDirectory).toAbsolutePath().normalize();
     }
 
     private String resolveGuildId(String guildId) {
@@ -40,6 +73,7 @@ public class UserService {
      * @param guildId Optional guild/server ID; uses default if not provided
      * @return User ID string if found, or error message
      */
+    @RequiresIntents(GatewayIntent.GUILD_MEMBERS)
     @Tool(name = "get_user_id_by_name", description = "Get a Discord user's ID by username in a guild for ping usage <@id>.")
     public String getUserIdByName(
             @ToolParam(description = "Discord username (optionally username#discriminator)") String username,
@@ -62,13 +96,23 @@ public class UserService {
             name = username.substring(0, idx);
             discriminatorLocal = username.substring(idx + 1);
         }
-        List<Member> members = guild.getMemberCache().getElementsByUsername(name, true);
+        String finalName = name;
+        // A gateway member query per call, so the lookup works without caching every member
+        List<Member> candidates = CallDeadline.get(guild.retrieveMembersByPrefix(name, MEMBER_QUERY_LIMIT));
+        List<Member> members = candidates.stream()
+                .filter(m -> m.getUser().getName().equalsIgnoreCase(finalName))
+                .toList();
         if (discriminatorLocal != null) {
             final String finalDiscriminator = discriminatorLocal;
             members = members.stream()
                     .filter(m -> m.getUser().getDiscriminator().equals(finalDiscriminator))
                     .toList();
         }
+        if (members.isEmpty() && candidates.size() == MEMBER_QUERY_LIMIT) {
+            // Discord returns at most this many members per query, the exact name may not be among them
+            throw new IllegalArgumentException("No user found with username " + username + " among the first " + MEMBER_QUERY_LIMIT
+                    + " members whose name starts with it. The name is too common to look up, use the user ID instead");
+        }
         if (members.isEmpty()) {
             throw new IllegalArgumentException("No user found with username " + username);
         }
@@ -102,8 +146,9 @@ public class UserService {
         if (user == null) {
             throw new IllegalArgumentException("User not found by userId");
         }
-        Message sentMessage = user.openPrivateChannel().complete().sendMessage(message).complete();
-        return "Message sent successfully. Message link: " + sentMessage.getJumpUrl();
+        Message sentMessage = writeScheduler.submit("dm:" + userId,
+                () -> CallDeadline.complete(CallDeadline.complete(user.openPrivateChannel()).sendMessage(message)));
+        return "Message sent successfully (ID: " + sentMessage.getId() + "). Message link: " + sentMessage.getJumpUrl();
     }
 
     /**
@@ -132,11 +177,11 @@ public class UserService {
         if (user == null) {
             throw new IllegalArgumentException("User not found by userId");
         }
-        Message messageById = user.openPrivateChannel().complete().retrieveMessageById(messageId).complete();
+        Message messageById = CallDeadline.complete(CallDeadline.complete(user.openPrivateChannel()).retrieveMessageById(messageId));
         if (messageById == null) {
             throw new IllegalArgumentException("Message not found by messageId");
         }
-        Message editedMessage = messageById.editMessage(newMessage).complete();
+        Message editedMessage = CallDeadline.complete(messageById.editMessage(newMessage));
         return "Message edited successfully. Message link: " + editedMessage.getJumpUrl();
     }
 
@@ -161,11 +206,11 @@ public class UserService {
         if (user == null) {
             throw new IllegalArgumentException("User not found by userId");
         }
-        Message messageById = user.openPrivateChannel().complete().retrieveMessageById(messageId).complete();
+        Message messageById = CallDeadline.complete(CallDeadline.complete(user.openPrivateChannel()).retrieveMessageById(messageId));
         if (messageById == null) {
             throw new IllegalArgumentException("Message not found by messageId");
         }
-        messageById.delete().queue();
+        CallDeadline.complete(messageById.delete());
         return "Message deleted successfully";
     }
 
@@ -191,29 +236,171 @@ public class UserService {
         if (user == null) {
             throw new IllegalArgumentException("User not found by userId");
         }
-        List<Message> messages = user.openPrivateChannel().complete().getHistory().retrievePast(limit).complete();
-        List<String> formatedMessages = formatMessages(messages);
-        return "**Retrieved " + messages.size() + " messages:** \n" + String.join("\n", formatedMessages);
+        List<Message> messages = CallDeadline.complete(CallDeadline.complete(user.openPrivateChannel()).getHistory().retrievePast(limit));
+        return ResultWriter.forMessages(messages)
+                .append("**Retrieved ").append(messages.size()).append(" messages:** \n")
+                .messages(messages)
+                .toString();
+    }
+
+    /**
+     * Exports the members of a server to a local NDJSON or CSV file. Members are requested in gateway chunks with
+     * {@code Guild.loadMembers} and each member is written as it arrives without being cached, so memory use stays
+     * constant regardless of the guild size.
+     *
+     * @param guildId     Optional ID of the Discord server. If not provided, the default server will be used.
+     * @param format      Optional output format, "ndjson" (default) or "csv".
+     * @param fields      Optional comma-separated fields to export (id, username, nickname, joined, created, bot, roles; default all).
+     * @param joinedAfter Optional date (YYYY-MM-DD); only members who joined on or after it.
+     * @param roleId      Optional role ID the members must have.
+     * @param type        Optional "bot" or "human" to export only bots or only humans.
+     * @return The path of the export file, the number of exported members and the throughput.
+     */
+    @RequiresIntents(GatewayIntent.GUILD_MEMBERS)
+    @Tool(name = "export_members", description = "Export the members of a server to a local NDJSON or CSV file, streamed without caching them")
+    public String exportMembers(@ToolParam(description = "Discord server ID", required = false) String guildId,
+                                @ToolParam(description = "Output format: ndjson (default) or csv", required = false) String format,
+                                @ToolParam(description = "Comma-separated fields: id, username, nickname, joined, created, bot, roles (default all)", required = false) String fields,
+                                @ToolParam(description = "Only members who joined on or after this date (YYYY-MM-DD)", required = false) String joinedAfter,
+                                @ToolParam(description = "Only members with this role ID", required = false) String roleId,
+                                @ToolParam(description = "Only bots or only humans: bot/human", required = false) String type) {
+        guildId = resolveGuildId(guildId);
+        if (guildId == null || guildId.isEmpty()) {
+            throw new IllegalArgumentException("guildId cannot be null");
+        }
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && format != null && !format.isEmpty() && !"ndjson".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("format must be ndjson or csv");
+        }
+        List<String> projection = fields == null || fields.isEmpty() ? EXPORT_FIELDS
+                : Arrays.stream(fields.split(",")).map(String::trim).map(field -> field.toLowerCase(Locale.ROOT)).toList();
+        for (String field : projection) {
+            if (!EXPORT_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field + ". Available: " + String.join(", ", EXPORT_FIELDS));
+            }
+        }
+        OffsetDateTime after;
+        try {
+            after = joinedAfter == null || joinedAfter.isEmpty() ? null : LocalDate.parse(joinedAfter).atStartOfDay().atOffset(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("joinedAfter must be a date in the format YYYY-MM-DD");
+        }
+        if (type != null && !type.isEmpty() && !"bot".equalsIgnoreCase(type) && !"human".equalsIgnoreCase(type)) {
+            throw new IllegalArgumentException("type must be bot or human");
+        }
+        Boolean bots = type == null || type.isEmpty() ? null : "bot".equalsIgnoreCase(type);
+
+        Guild guild = jdaProvider.getJDA().getGuildById(guildId);
+        if (guild == null) {
+            throw new IllegalArgumentException("Discord server not found by guildId");
+        }
+        Path file = exportDirectory.resolve("members-" + guildId + "-" + System.currentTimeMillis() + (csv ? ".csv" : ".ndjson"));
+        long[] counts = new long[2];
+        long startedAt = System.nanoTime();
+        try {
+            Files.createDirectories(exportDirectory);
+            try (BufferedWriter writer = Files.newBufferedWriter(file);
+                 JsonGenerator json = csv ? null : JSON.createGenerator(writer)) {
+                if (csv) {
+                    writer.write(String.join(",", projection));
+                    writer.newLine();
+                } else {
+                    json.setRootValueSeparator(new SerializedString("\n"));
+                }
+                // Chunks are handled sequentially on the gateway thread, so the writer needs no synchronization
+                CallDeadline.get(guild.loadMembers(member -> {
+                    counts[0]++;
+                    if ((after != null && member.getTimeJoined().isBefore(after))
+                            || (roleId != null && !roleId.isEmpty() && member.getRoles().stream().noneMatch(role -> role.getId().equals(roleId)))
+                            || (bots != null && member.getUser().isBot() != bots)) {
+                        return;
+                    }
+                    try {
+                        if (csv) {
+                            writeCsv(writer, member, projection);
+                        } else {
+                            writeJson(json, member, projection);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    counts[1]++;
+                }));
+                if (json != null) {
+                    json.writeRaw('\n');
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException deleteFailure) {
+                e.addSuppressed(deleteFailure);
+            }
+            if (e instanceof DeadlineExceededException deadlineExceeded) {
+                throw deadlineExceeded;
+            }
+            throw new IllegalStateException("Member export failed: " + e.getMessage(), e);
+        }
+        double seconds = Math.max(1, System.nanoTime() - startedAt) / 1e9;
+        return "Exported " + counts[1] + " of " + counts[0] + " members to " + file + " in "
+                + String.format("%.1f s (%.0f members/s)", seconds, counts[0] / seconds);
+    }
+
+    private static void writeJson(JsonGenerator json, Member member, List<String> projection) throws IOException {
+        json.writeStartObject();
+        for (String field : projection) {
+            switch (field) {
+                case "id" -> json.writeStringField("id", member.getId());
+                case "username" -> json.writeStringField("username", member.getUser().getName());
+                case "nickname" -> json.writeStringField("nickname", member.getNickname());
+                case "joined" -> json.writeStringField("joined", member.getTimeJoined().toString());
+                case "created" -> json.writeStringField("created", member.getUser().getTimeCreated().toString());
+                case "bot" -> json.writeBooleanField("bot", member.getUser().isBot());
+                case "roles" -> {
+                    json.writeArrayFieldStart("roles");
+                    for (Role role : member.getRoles()) {
+                        json.writeString(role.getId());
+                    }
+                    json.writeEndArray();
+                }
+                default -> throw new IllegalArgumentException("Unknown field: " + field);
+            }
+        }
+        json.writeEndObject();
+    }
+
+    private static void writeCsv(BufferedWriter writer, Member member, List<String> projection) throws IOException {
+        for (int i = 0; i < projection.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = switch (projection.get(i)) {
+                case "id" -> member.getId();
+                case "username" -> member.getUser().getName();
+                case "nickname" -> member.getNickname() == null ? "" : member.getNickname();
+                case "joined" -> member.getTimeJoined().toString();
+                case "created" -> member.getUser().getTimeCreated().toString();
+                case "bot" -> String.valueOf(member.getUser().isBot());
+                case "roles" -> member.getRoles().stream().map(Role::getId).collect(Collectors.joining(" "));
+                default -> throw new IllegalArgumentException("Unknown field: " + projection.get(i));
+            };
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.newLine();
     }
 
     private User getUserById(String userId) {
         return jdaProvider.getJDA().getGuilds().stream()
-                .map(guild -> guild.retrieveMemberById(userId).complete())
+                .map(guild -> CallDeadline.complete(guild.retrieveMemberById(userId)))
                 .filter(Objects::nonNull)
                 .map(Member::getUser)
                 .findFirst()
                 .orElse(null);
     }
-
-    private List<String> formatMessages(List<Message> messages) {
-        return messages.stream()
-                .map(m -> {
-                    String authorName = m.getAuthor().getName();
-                    String timestamp = m.getTimeCreated().toString();
-                    String content = m.getContentDisplay();
-                    String messageId = m.getId();
-
-                    return String.format("- (ID: %s) **[%s]** `%s`: ```%s```", messageId, authorName, timestamp, content);
-                }).toList();
-    }
 }
@@ -1,25 +1,50 @@
 package dev.saseq.services;
 
+import dev.saseq.configs.CallDeadline;
 import dev.saseq.configs.LazyJDAProvider;
+import dev.saseq.configs.PermissionGuard;
+import dev.saseq.configs.RequiresIntents;
+import dev.saseq.configs.RestEntityCache;
+import dev.saseq.configs.WebhookClientPool;
 import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.IncomingWebhookClient;
 import net.dv8tion.jda.api.entities.Message;
-import net.dv8tion.jda.api.entities.WebhookClient;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.entities.Webhook;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import net.dv8tion.jda.api.requests.GatewayIntent;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 @Service
+@RequiresIntents(GatewayIntent.GUILD_WEBHOOKS)
 public class WebhookService {
 
+    private static final int MAX_SEND_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MS = 500;
+
     private final LazyJDAProvider jdaProvider;
+    private final WebhookClientPool webhookClientPool;
+    private final RestEntityCache restEntityCache;
+    private final PermissionGuard permissionGuard;
 
-    public WebhookService(LazyJDAProvider jdaProvider) {
+    public WebhookService(LazyJDAProvider jdaProvider, WebhookClientPool webhookClientPool, RestEntityCache restEntityCache,
+                          PermissionGuard permissionGuard) {
         this.jdaProvider = jdaProvider;
+        this.webhookClientPool = webhookClientPool;
+        this.restEntityCache = restEntityCache;
+        this.permissionGuard = permissionGuard;
     }
 
     /**
@@ -43,8 +68,10 @@ public class WebhookService {
         if (channelById == null) {
             throw new IllegalArgumentException("Channel not found by channelId");
         }
-        Webhook webhook = channelById.createWebhook(name).complete();
-        return "Created " + name + " webhook: " + webhook.getUrl();
+        permissionGuard.require(channelById, Permission.MANAGE_WEBHOOKS);
+        Webhook webhook = CallDeadline.complete(channelById.createWebhook(name));
+        restEntityCache.invalidateWebhooks(channelId);
+        return "Created " + name + " webhook (ID: " + webhook.getId() + "): " + webhook.getUrl();
     }
 
     /**
@@ -59,11 +86,14 @@ public class WebhookService {
             throw new IllegalArgumentException("webhookId cannot be null");
         }
 
-        Webhook webhook = jdaProvider.getJDA().retrieveWebhookById(webhookId).complete();
+        Webhook webhook = restEntityCache.getWebhook(jdaProvider.getJDA(), webhookId);
         if (webhook == null) {
             throw new IllegalArgumentException("Webhook not found by webhookId");
         }
-        webhook.delete().queue();
+        permissionGuard.require(webhook.getChannel(), Permission.MANAGE_WEBHOOKS);
+        CallDeadline.complete(webhook.delete());
+        webhookClientPool.evict(webhook.getId());
+        restEntityCache.invalidateWebhooks(webhook.getChannel().getId());
         return "Deleted " + webhook.getName() + " webhook";
     }
 
@@ -83,18 +113,19 @@ public class WebhookService {
         if (channelById == null) {
             throw new IllegalArgumentException("Channel not found by channelId");
         }
-        List<Webhook> webhooks = channelById.retrieveWebhooks().complete();
+        List<Webhook> webhooks = restEntityCache.getWebhooks(channelById);
         if (webhooks.isEmpty()) {
             throw new IllegalArgumentException("No webhooks found");
         }
-        List<String> formattedWebhooks = formatWebhooks(webhooks);
-        return "**Retrieved " + formattedWebhooks.size() + " messages:** \n" + String.join("\n", formattedWebhooks);
-    }
-
-    private List<String> formatWebhooks(List<Webhook> webhooks) {
-        return webhooks.stream()
-                .map(w -> String.format("- (ID: %s) **[%s]** ```%s```", w.getId(), w.getName(), w.getUrl()))
-                .toList();
+        ResultWriter result = ResultWriter.forEntries(webhooks.size())
+                .append("**Retrieved ").append(webhooks.size()).append(" messages:** \n");
+        for (int i = 0; i < webhooks.size(); i++) {
+            if (i > 0) {
+                result.append('\n');
+            }
+            result.webhook(webhooks.get(i));
+        }
+        return result.toString();
     }
 
     /**
@@ -114,11 +145,95 @@ public class WebhookService {
             throw new IllegalArgumentException("message cannot be null");
         }
 
-        IncomingWebhookClient webhookClient = WebhookClient.createClient(jdaProvider.getJDA(), webhookUrl);
-        if (webhookClient == null) {
-            throw new IllegalArgumentException("Webhook not found by webhookUrl");
+        IncomingWebhookClient webhookClient = webhookClientPool.getClient(webhookUrl);
+        Message sentMessage = CallDeadline.complete(webhookClient.sendMessage(message));
+        return "Message sent successfully (ID: " + sentMessage.getId() + "). Message link: " + sentMessage.getJumpUrl();
+    }
+
+    /**
+     * Sends the same message to many webhooks concurrently.
+     * Every webhook has its own rate-limit bucket, so all sends are submitted at once and each target
+     * is retried independently on transient failures.
+     *
+     * @param webhookUrls Comma or newline separated list of webhook URLs.
+     * @param message     The content of the message to be sent.
+     * @return A per-target summary with the message link or the failure reason for each webhook.
+     */
+    @Tool(name = "broadcast_webhook_message", description = "Send the same message to many webhooks concurrently")
+    public String broadcastWebhookMessage(@ToolParam(description = "Comma or newline separated Discord webhook links") String webhookUrls,
+                                          @ToolParam(description = "Message content") String message) {
+        if (webhookUrls == null || webhookUrls.isEmpty()) {
+            throw new IllegalArgumentException("webhookUrls cannot be null");
+        }
+        if (message == null || message.isEmpty()) {
+            throw new IllegalArgumentException("message cannot be null");
+        }
+
+        List<String> targets = Arrays.stream(webhookUrls.split("[,\\s]+"))
+                .filter(url -> !url.isEmpty())
+                .distinct()
+                .toList();
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("webhookUrls cannot be null");
+        }
+
+        long deadline = CallDeadline.current();
+        List<CompletableFuture<String>> results = new ArrayList<>(targets.size());
+        for (String url : targets) {
+            String webhookId = webhookClientPool.getWebhookId(url);
+            if (webhookId == null) {
+                results.add(CompletableFuture.completedFuture("- (invalid URL) FAILED: not a Discord webhook URL"));
+                continue;
+            }
+            IncomingWebhookClient client = webhookClientPool.getClient(url);
+            results.add(sendWithRetry(client, message, 1, deadline)
+                    .handle((sent, error) -> {
+                        if (error == null) {
+                            return "- (ID: " + webhookId + ") OK: " + sent.getJumpUrl();
+                        }
+                        Throwable cause = unwrap(error);
+                        if (cause instanceof ErrorResponseException e && e.getErrorResponse() == ErrorResponse.UNKNOWN_WEBHOOK) {
+                            webhookClientPool.evict(webhookId);
+                        }
+                        return "- (ID: " + webhookId + ") FAILED: " + cause.getMessage();
+                    }));
+        }
+
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+        long failed = results.stream().map(CompletableFuture::join).filter(r -> r.contains(") FAILED: ")).count();
+        StringBuilder summary = new StringBuilder(64 + targets.size() * 96);
+        summary.append("**Broadcast to ").append(targets.size()).append(" webhooks: ")
+                .append(targets.size() - failed).append(" sent, ").append(failed).append(" failed**\n");
+        for (CompletableFuture<String> result : results) {
+            summary.append(result.join()).append("\n");
+        }
+        return summary.toString();
+    }
+
+    private CompletableFuture<Message> sendWithRetry(IncomingWebhookClient client, String message, int attempt, long deadline) {
+        // Retries run on other threads, so the invocation's deadline is passed along explicitly
+        return CallDeadline.bound(client.sendMessage(message), deadline).submit()
+                .exceptionallyCompose(error -> {
+                    if (attempt >= MAX_SEND_ATTEMPTS || !isRetryable(unwrap(error))) {
+                        return CompletableFuture.failedFuture(error);
+                    }
+                    long backoff = RETRY_BACKOFF_MS << (attempt - 1);
+                    return CompletableFuture.supplyAsync(() -> null, CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS))
+                            .thenCompose(ignored -> sendWithRetry(client, message, attempt + 1, deadline));
+                });
+    }
+
+    private boolean isRetryable(Throwable error) {
+        if (error instanceof ErrorResponseException e) {
+            return e.isServerError();
+        }
+        return error instanceof IOException;
+    }
+
+    private Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
         }
-        Message sentMessage = webhookClient.sendMessage(message).complete();
-        return "Message sent successfully. Message link: " + sentMessage.getJumpUrl();
+        return error;
     }
 }
@@ -0,0 +1,133 @@
+package dev.saseq.configs;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChannelWriteSchedulerTest {
+
+    private static final int WRITES = 20;
+
+    @Test
+    void writesToOneChannelRunInSubmissionOrder() throws Exception {
+        ChannelWriteScheduler scheduler = new ChannelWriteScheduler();
+        List<Integer> applied = new CopyOnWriteArrayList<>();
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        List<Thread> submitters = new ArrayList<>();
+
+        submitters.add(Thread.ofVirtual().start(() -> scheduler.submit("channel", () -> {
+            firstStarted.countDown();
+            await(releaseFirst);
+            applied.add(0);
+            return 0;
+        })));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= WRITES; i++) {
+            int write = i;
+            submitters.add(Thread.ofVirtual().start(() -> scheduler.submit("channel", () -> applied.add(write))));
+            // Submit the next write only once this one is queued, so the submission order is known
+            waitUntil(() -> scheduler.getQueuedWrites("channel") == write);
+        }
+        releaseFirst.countDown();
+        for (Thread submitter : submitters) {
+            assertTrue(submitter.join(Duration.ofSeconds(5)));
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i <= WRITES; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, applied);
+        assertEquals(WRITES + 1, scheduler.getWriteCount());
+        assertEquals(WRITES + 1, scheduler.getMaxDepth());
+        waitUntil(() -> scheduler.getLaneCount() == 0);
+    }
+
+    @Test
+    void concurrentWritesAroundLaneRetirementAllRun() throws Exception {
+        ChannelWriteScheduler scheduler = new ChannelWriteScheduler();
+        int threads = 8;
+        int writesPerThread = 5_000;
+        LongAdder applied = new LongAdder();
+        List<Thread> submitters = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            // Few channels and trivial writes, so lanes drain and retire while other submitters enqueue to them
+            String laneKey = "channel-" + t % 2;
+            submitters.add(Thread.ofVirtual().start(() -> {
+                for (int i = 0; i < writesPerThread; i++) {
+                    int write = i;
+                    assertEquals(write, scheduler.submit(laneKey, () -> {
+                        applied.increment();
+                        return write;
+                    }));
+                }
+            }));
+        }
+        for (Thread submitter : submitters) {
+            assertTrue(submitter.join(Duration.ofSeconds(30)), "a write was never run");
+        }
+
+        assertEquals((long) threads * writesPerThread, applied.sum());
+        assertEquals((long) threads * writesPerThread, scheduler.getWriteCount());
+        waitUntil(() -> scheduler.getLaneCount() == 0);
+    }
+
+    @Test
+    void writesToOtherChannelsDoNotWait() throws Exception {
+        ChannelWriteScheduler scheduler = new ChannelWriteScheduler();
+        CountDownLatch releaseBlocked = new CountDownLatch(1);
+        Thread blocked = Thread.ofVirtual().start(() -> scheduler.submit("busy", () -> {
+            await(releaseBlocked);
+            return null;
+        }));
+        waitUntil(() -> scheduler.getQueueDepths().containsKey("busy"));
+
+        assertEquals("sent", scheduler.submit("idle", () -> "sent"));
+
+        releaseBlocked.countDown();
+        assertTrue(blocked.join(Duration.ofSeconds(5)));
+        waitUntil(() -> scheduler.getLaneCount() == 0);
+    }
+
+    @Test
+    void failedWriteIsRethrownAndLaneContinues() {
+        ChannelWriteScheduler scheduler = new ChannelWriteScheduler();
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> scheduler.submit("channel", () -> {
+                    throw new IllegalArgumentException("message cannot be empty");
+                }));
+
+        assertEquals("message cannot be empty", error.getMessage());
+        assertEquals("sent", scheduler.submit("channel", () -> "sent"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5 seconds");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package dev.saseq.configs;
+
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GuildSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readReturnsWhatWasWritten() throws IOException {
+        GuildSnapshot.GuildEntry guild = new GuildSnapshot.GuildEntry("1100000000000000001", "Test Server",
+                List.of(
+                        new GuildSnapshot.ChannelEntry("1100000000000000002", "General", ChannelType.CATEGORY, null, null, List.of()),
+                        new GuildSnapshot.ChannelEntry("1100000000000000003", "chat", ChannelType.TEXT, "1100000000000000002",
+                                "Topic with ünïcödé", List.of()),
+                        new GuildSnapshot.ChannelEntry("1100000000000000004", "help", ChannelType.FORUM, null, null, List.of(
+                                new GuildSnapshot.TagEntry("1100000000000000005", "bug", false),
+                                new GuildSnapshot.TagEntry("1100000000000000006", "solved", true)))),
+                List.of(
+                        new GuildSnapshot.ThreadEntry("1100000000000000007", "Crash on start", "1100000000000000004", false, true, false),
+                        new GuildSnapshot.ThreadEntry("1100000000000000008", "FAQ", "1100000000000000004", true, false, true)),
+                List.of(
+                        new GuildSnapshot.RoleEntry("1100000000000000001", "@everyone", 0x1FFFFFFF, false, false, false),
+                        // IDs above Long.MAX_VALUE are written unsigned
+                        new GuildSnapshot.RoleEntry("18000000000000000000", "Moderator", 0x3498db, true, true, false)));
+        Map<String, GuildSnapshot.GuildEntry> guilds = new LinkedHashMap<>();
+        guilds.put(guild.id(), guild);
+        guilds.put("1200000000000000001", new GuildSnapshot.GuildEntry("1200000000000000001", "Empty", List.of(), List.of(), List.of()));
+        Path file = directory.resolve("snapshots/guilds.bin");
+
+        new GuildSnapshot(1700000000000L, guilds).write(file);
+        GuildSnapshot read = GuildSnapshot.read(file);
+
+        assertEquals(1700000000000L, read.getSavedAt());
+        assertEquals(guilds, read.getGuilds());
+        assertEquals(List.of("1100000000000000001", "1200000000000000001"), List.copyOf(read.getGuilds().keySet()));
+        assertEquals(2, read.getGuild("1100000000000000001").threadsIn("1100000000000000004").size());
+    }
+
+    @Test
+    void readRejectsTruncatedFile() throws IOException {
+        Path file = directory.resolve("guilds.bin");
+        new GuildSnapshot(1L, Map.of("1100000000000000001", new GuildSnapshot.GuildEntry("1100000000000000001", "Test Server",
+                List.of(), List.of(), List.of()))).write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+
+        assertThrows(IOException.class, () -> GuildSnapshot.read(file));
+    }
+
+    @Test
+    void readRejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("guilds.bin");
+        Files.writeString(file, "not a snapshot");
+
+        assertThrows(IOException.class, () -> GuildSnapshot.read(file));
+    }
+}
@@ -0,0 +1,166 @@
+package dev.saseq.services;
+
+import dev.saseq.configs.LazyJDAProvider;
+import dev.saseq.configs.PriorityLanes;
+import dev.saseq.configs.ToolCallbackRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JobServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final ToolCallbackRegistry toolCallbackRegistry = mock(ToolCallbackRegistry.class);
+    private final LazyJDAProvider jdaProvider = mock(LazyJDAProvider.class);
+    private final List<JobService> services = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        services.forEach(JobService::shutdown);
+    }
+
+    @Test
+    void resumeReplaysJournal() throws IOException {
+        Path journal = directory.resolve("jobs.journal");
+        List<String> records = new ArrayList<>(List.of(
+                submit("crashed", 3),
+                state("crashed", "RUNNING", 0),
+                start("crashed", 0),
+                progress("crashed", 1, 1, 0),
+                // The process died while item 1 was calling its tool
+                start("crashed", 1),
+                submit("stopped", 3),
+                state("stopped", "RUNNING", 0),
+                start("stopped", 0),
+                progress("stopped", 1, 1, 0),
+                submit("queued", 2),
+                "{\"op\":\"progress\",\"id\":\"queued\",\"ne"));
+        Files.write(journal, records, StandardCharsets.UTF_8);
+
+        JobService service = start(journal);
+
+        assertEquals("crashed (test, delete_message): QUEUED, 2/3 items (1 succeeded, 1 failed), "
+                        + "last error: item 1: interrupted by a restart and not repeated, it may have been applied",
+                service.jobStatus("crashed"));
+        assertEquals("stopped (test, delete_message): QUEUED, 1/3 items (1 succeeded, 0 failed)", service.jobStatus("stopped"));
+        assertEquals("queued (test, delete_message): QUEUED, 0/2 items (0 succeeded, 0 failed)", service.jobStatus("queued"));
+        verify(jdaProvider, times(3)).runInFlight(anyString(), any());
+    }
+
+    @Test
+    void resumeCompactsJournal() throws IOException {
+        Path journal = directory.resolve("jobs.journal");
+        List<String> records = new ArrayList<>();
+        records.add(submit("pending", 2));
+        for (int i = 0; i < 101; i++) {
+            records.add(submit("finished-" + i, 2));
+            records.add(progress("finished-" + i, 1, 1, 0));
+            records.add(progress("finished-" + i, 2, 2, 0));
+            records.add(state("finished-" + i, "DONE", 1000L + i));
+        }
+        records.add(start("pending", 0));
+        Files.write(journal, records, StandardCharsets.UTF_8);
+
+        JobService service = start(journal);
+        String status = service.jobStatus(null);
+
+        // One submit, progress and state record per retained job, the oldest finished job is dropped
+        List<String> compacted = Files.readAllLines(journal, StandardCharsets.UTF_8);
+        assertEquals(3 * 101, compacted.size());
+        assertThrows(IllegalArgumentException.class, () -> service.jobStatus("finished-0"));
+        assertEquals("finished-1 (test, delete_message): DONE, 2/2 items (2 succeeded, 0 failed)", service.jobStatus("finished-1"));
+        assertTrue(compacted.contains("{\"op\":\"submit\",\"id\":\"finished-1\",\"name\":\"test\",\"tool\":\"delete_message\","
+                + "\"bot\":\"default\",\"submittedAt\":1,\"total\":2,\"items\":[]}"));
+        assertFalse(compacted.stream().anyMatch(record -> record.contains("\"op\":\"start\"")));
+
+        // The compacted journal replays to the same jobs
+        assertEquals(status, start(journal).jobStatus(null));
+    }
+
+    @Test
+    void submittedJobRunsEveryItem() {
+        ToolCallback tool = mock(ToolCallback.class);
+        when(tool.call(anyString())).thenReturn("Message deleted");
+        when(toolCallbackRegistry.get("delete_message")).thenReturn(tool);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(jdaProvider).runInFlight(any(), any());
+        JobService service = start(directory.resolve("data/jobs.journal"));
+
+        String submitted = service.submitJob("purge", "delete_message",
+                "[{\"channelId\": \"1\", \"messageId\": \"2\"}, {\"channelId\": \"1\", \"messageId\": \"3\"}]");
+        String jobId = submitted.substring("Submitted job ".length(), submitted.indexOf(' ', "Submitted job ".length()));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.jobStatus(jobId).contains("QUEUED") || service.jobStatus(jobId).contains("RUNNING")) {
+            assertTrue(System.nanoTime() < deadline, "job did not finish within 5 seconds");
+            Thread.onSpinWait();
+        }
+        assertEquals(jobId + " (purge, delete_message): DONE, 2/2 items (2 succeeded, 0 failed)", service.jobStatus(jobId));
+        verify(tool).call("{\"channelId\":\"1\",\"messageId\":\"2\"}");
+        verify(tool).call("{\"channelId\":\"1\",\"messageId\":\"3\"}");
+    }
+
+    @Test
+    void submitJobRejectsInvalidItems() {
+        JobService service = start(directory.resolve("jobs.journal"));
+
+        assertThrows(IllegalArgumentException.class, () -> service.submitJob("purge", "delete_message", "[]"));
+        assertThrows(IllegalArgumentException.class, () -> service.submitJob("purge", "delete_message", "{}"));
+        assertThrows(IllegalArgumentException.class, () -> service.submitJob("purge", "delete_message", "[1]"));
+        assertThrows(IllegalArgumentException.class, () -> service.submitJob("purge", "submit_job", "[{}]"));
+    }
+
+    private JobService start(Path journal) {
+        JobService service = new JobService(toolCallbackRegistry, new PriorityLanes(), jdaProvider, journal.toString(), 1, 100, 0);
+        services.add(service);
+        service.resume();
+        return service;
+    }
+
+    private static String submit(String id, int items) {
+        StringBuilder record = new StringBuilder("{\"op\":\"submit\",\"id\":\"" + id + "\",\"name\":\"test\","
+                + "\"tool\":\"delete_message\",\"bot\":\"default\",\"submittedAt\":1,\"total\":" + items + ",\"items\":[");
+        for (int i = 0; i < items; i++) {
+            record.append(i == 0 ? "" : ",").append("{\"channelId\":\"1\",\"messageId\":\"").append(i + 2).append("\"}");
+        }
+        return record.append("]}").toString();
+    }
+
+    private static String start(String id, int item) {
+        return "{\"op\":\"start\",\"id\":\"" + id + "\",\"item\":" + item + "}";
+    }
+
+    private static String progress(String id, int next, int succeeded, int failed) {
+        return "{\"op\":\"progress\",\"id\":\"" + id + "\",\"next\":" + next + ",\"succeeded\":" + succeeded
+                + ",\"failed\":" + failed + ",\"error\":null}";
+    }
+
+    private static String state(String id, String state, long finishedAt) {
+        return "{\"op\":\"state\",\"id\":\"" + id + "\",\"state\":\"" + state + "\",\"finishedAt\":" + finishedAt + "}";
+    }
+}
@@ -0,0 +1,113 @@
+package dev.saseq.services;
+
+import dev.saseq.configs.GuildSnapshot;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Compares {@link ResultWriter} with the {@code String.format} and {@code String.join} rendering it replaced, for a
+ * read_messages result and a list_channels result. Run it with the GC profiler to see the allocation per call
+ * ({@code gc.alloc.rate.norm}):
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main ResultWriterBenchmark -prof gc
+ * </pre>
+ * Messages are stub-only mocks, whose getter cost is the same for both renderers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultWriterBenchmark {
+
+    @Param({"10", "100"})
+    int entries;
+
+    private List<Message> messages;
+    private List<GuildSnapshot.ChannelEntry> channels;
+
+    @Setup
+    public void setup() {
+        User author = mock(User.class, withSettings().stubOnly());
+        when(author.getName()).thenReturn("some.user");
+        OffsetDateTime created = OffsetDateTime.of(2025, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+        messages = new ArrayList<>(entries);
+        channels = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            String content = "Message " + i + " with `inline code` and some text of a typical length for a chat message";
+            Message message = mock(Message.class, withSettings().stubOnly());
+            when(message.getId()).thenReturn(Long.toString(1300000000000000000L + i));
+            when(message.getAuthor()).thenReturn(author);
+            when(message.getTimeCreated()).thenReturn(created);
+            when(message.getContentRaw()).thenReturn(content);
+            when(message.getContentDisplay()).thenReturn(content);
+            when(message.getAttachments()).thenReturn(List.of());
+            messages.add(message);
+            channels.add(new GuildSnapshot.ChannelEntry(Long.toString(1100000000000000000L + i), "channel-" + i,
+                    ChannelType.TEXT, null, null, List.of()));
+        }
+    }
+
+    @Benchmark
+    public String messagesFormatted() {
+        List<String> lines = messages.stream()
+                .map(m -> {
+                    String attachments = m.getAttachments().stream()
+                            .map(a -> String.format("%s (ID: %s, %d bytes)", a.getFileName(), a.getId(), a.getSize()))
+                            .collect(Collectors.joining(", "));
+                    return String.format("- (ID: %s) **[%s]** `%s`: ```%s```", m.getId(), m.getAuthor().getName(),
+                            m.getTimeCreated().toString(), m.getContentDisplay())
+                            + (attachments.isEmpty() ? "" : " Attachments: " + attachments);
+                }).toList();
+        return "**Retrieved " + messages.size() + " messages:** \n" + String.join("\n", lines);
+    }
+
+    @Benchmark
+    public String messagesWritten() {
+        return ResultWriter.forMessages(messages)
+                .append("**Retrieved ").append(messages.size()).append(" messages:** \n")
+                .messages(messages)
+                .toString();
+    }
+
+    @Benchmark
+    public String channelsJoined() {
+        return "Retrieved " + channels.size() + " channels:\n" +
+                channels.stream()
+                        .map(c -> "- " + c.type().name() + " channel: " + c.name() + " (ID: " + c.id() + ")")
+                        .collect(Collectors.joining("\n"));
+    }
+
+    @Benchmark
+    public String channelsWritten() {
+        return ResultWriter.forEntries(channels.size())
+                .append("Retrieved ").append(channels.size()).append(" channels:\n")
+                .lines(channels, ResultWriter::channel)
+                .toString();
+    }
+}